@@ -0,0 +1,104 @@
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.lang.reflect.Field;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.validation.Validation;
+
+import org.jboss.as.quickstarts.kitchensink.data.MemberCache;
+import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.RegisteredMembers;
+import org.jboss.as.quickstarts.kitchensink.service.MemberRegistration;
+import org.jboss.as.quickstarts.kitchensink.service.MemberValidator;
+
+/**
+ * Wires the kitchensink beans by hand, the way the container would, so that the benchmarks run the
+ * real repository and registration code against an embedded H2 database.
+ * <p/>
+ * Entity managers are not thread safe, so each benchmark thread should wire its own beans around its
+ * own entity manager.
+ */
+public final class Kitchensink {
+
+    /**
+     * Hibernate logs every statement rejected by the database, such as the duplicate emails the
+     * registration benchmarks insert on purpose. Held here, as the logging framework only keeps weak
+     * references to loggers.
+     */
+    private static final Logger SQL_EXCEPTION_LOGGER = Logger.getLogger("org.hibernate.engine.jdbc.spi.SqlExceptionHelper");
+
+    private Kitchensink() {
+    }
+
+    /**
+     * Bootstraps Hibernate against a fresh in memory H2 database, see META-INF/persistence.xml.
+     */
+    public static EntityManagerFactory createEntityManagerFactory() {
+        SQL_EXCEPTION_LOGGER.setLevel(Level.OFF);
+        return Persistence.createEntityManagerFactory("benchmark");
+    }
+
+    public static MemberRepository createRepository(EntityManager em) {
+        MemberCache memberCache = new MemberCache();
+        inject(memberCache, "log", quietLogger(MemberCache.class));
+        memberCache.configure();
+
+        MemberRepository repository = new MemberRepository();
+        inject(repository, "em", em);
+        inject(repository, "memberCache", memberCache);
+        return repository;
+    }
+
+    public static MemberRegistration createRegistration(EntityManager em) {
+        MemberRegistration registration = new MemberRegistration();
+        inject(registration, "log", quietLogger(MemberRegistration.class));
+        inject(registration, "em", em);
+        inject(registration, "repository", createRepository(em));
+        inject(registration, "memberEventSrc", new NoOpEvent<Member>());
+        inject(registration, "registeredMembersEventSrc", new NoOpEvent<RegisteredMembers>());
+        return registration;
+    }
+
+    public static MemberValidator createMemberValidator() {
+        MemberValidator validator = new MemberValidator();
+        inject(validator, "log", quietLogger(MemberValidator.class));
+        inject(validator, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        validator.checkConstraints();
+        return validator;
+    }
+
+    public static Member newMember(String name, String email) {
+        Member member = new Member();
+        member.setName(name);
+        member.setEmail(email);
+        member.setPhoneNumber("2125551234");
+        return member;
+    }
+
+    /**
+     * Sets a private, normally injected, field.
+     */
+    public static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot inject " + target.getClass().getSimpleName() + "." + fieldName, e);
+        }
+    }
+
+    /**
+     * The beans log every registration at INFO, which would end up measuring the console.
+     */
+    private static Logger quietLogger(Class<?> beanClass) {
+        Logger log = Logger.getLogger(beanClass.getName());
+        log.setLevel(Level.WARNING);
+        return log;
+    }
+}
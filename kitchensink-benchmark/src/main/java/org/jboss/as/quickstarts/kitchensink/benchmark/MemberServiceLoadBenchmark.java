@@ -0,0 +1,122 @@
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Load test of the member service of the kitchensink-html5-mobile quickstart, run over HTTP against a
+ * deployed application, to compare the throughput of one deployment of the service with another, such
+ * as the stateful and the stateless <code>MemberService</code>:
+ * <ul>
+ * <li><code>listMembers</code> lists all members as JSON</li>
+ * <li><code>lookupMember</code> looks a random member up by id</li>
+ * </ul>
+ * Neither registers members during the run, so that every iteration reads the same table. Registrations
+ * are measured by {@link MemberServiceRegistrationLoadBenchmark}.
+ * <p/>
+ * Unlike the other benchmarks this one needs a running server with the quickstart deployed at
+ * <code>baseUrl</code>. The allocation rate that matters is the server's, watch it with
+ * <code>jstat -gc</code> on the server process while the benchmark runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class MemberServiceLoadBenchmark {
+
+    @Param({ "http://localhost:8080/jboss-as-kitchensink-html5-mobile/rest" })
+    public String baseUrl;
+
+    /**
+     * Number of members registered before the run, if the table has fewer.
+     */
+    @Param({ "100" })
+    public int memberCount;
+
+    private final List<Long> ids = new ArrayList<Long>();
+
+    @Setup(Level.Trial)
+    public void registerMembers() throws IOException {
+        JsonNode members = new ObjectMapper().readTree(new URL(baseUrl + "/members/json"));
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        for (int i = members.size(); i < memberCount; i++) {
+            get(baseUrl + MemberServiceRegistrationLoadBenchmark.newMemberPath(runId, i));
+        }
+        members = new ObjectMapper().readTree(new URL(baseUrl + "/members/json"));
+        for (JsonNode member : members) {
+            ids.add(member.get("id").getLongValue());
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("No member is registered at " + baseUrl);
+        }
+    }
+
+    /**
+     * The random numbers of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        final Random random = new Random();
+    }
+
+    @Benchmark
+    public int listMembers() throws IOException {
+        return get(baseUrl + "/members/json");
+    }
+
+    @Benchmark
+    public int lookupMember(Client client) throws IOException {
+        return get(baseUrl + "/members/" + ids.get(client.random.nextInt(ids.size())) + "/json");
+    }
+
+    /**
+     * Reads the whole response, so that the connection is kept alive for the next request. A registration
+     * written behind is answered with <code>202 Accepted</code> rather than <code>200 OK</code>.
+     *
+     * @return the number of bytes read
+     */
+    static int get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_ACCEPTED) {
+            throw new IOException("GET " + url + " answered " + status);
+        }
+        InputStream in = connection.getInputStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int length = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                length += read;
+            }
+            return length;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Load test of the registrations of the kitchensink-html5-mobile quickstart, run over HTTP against a
+ * deployed application: <code>registerMember</code> registers a new member through
+ * <code>GET /members/new</code>, answered with <code>200 OK</code>, or <code>202 Accepted</code> when
+ * registrations are written behind.
+ * <p/>
+ * Every registration grows the member table, so the run leaves the table larger than it found it. It
+ * is kept apart from {@link MemberServiceLoadBenchmark}, which it sorts after, so that the reads are
+ * measured on a table of a known size; run it on a freshly deployed quickstart to compare runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class MemberServiceRegistrationLoadBenchmark {
+
+    @Param({ "http://localhost:8080/jboss-as-kitchensink-html5-mobile/rest" })
+    public String baseUrl;
+
+    /**
+     * Keeps the emails registered by every run, and every thread, apart.
+     */
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Benchmark
+    public int registerMember() throws IOException {
+        return MemberServiceLoadBenchmark.get(baseUrl + newMemberPath(runId, sequence.incrementAndGet()));
+    }
+
+    /**
+     * @return the path registering a new member, with an email unique to the run and the sequence number
+     */
+    static String newMemberPath(String runId, long sequence) throws UnsupportedEncodingException {
+        String email = "load-" + runId + "-" + sequence + "@mailinator.com";
+        return "/members/new?name=Load+Member&phoneNumber=2125551234&email=" + URLEncoder.encode(email, "UTF-8");
+    }
+}
@@ -0,0 +1,30 @@
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.lang.annotation.Annotation;
+
+import javax.enterprise.event.Event;
+import javax.enterprise.util.TypeLiteral;
+
+/**
+ * Stands in for the CDI event source outside the container. Events are dropped, as there are no
+ * observers to notify.
+ */
+public class NoOpEvent<T> implements Event<T> {
+
+    public void fire(T event) {
+    }
+
+    public Event<T> select(Annotation... qualifiers) {
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <U extends T> Event<U> select(Class<U> subtype, Annotation... qualifiers) {
+        return (Event<U>) this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <U extends T> Event<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+        return (Event<U>) this;
+    }
+}
@@ -0,0 +1,149 @@
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+import org.jboss.as.quickstarts.kitchensink.rest.MemberJsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the two ways of listing every member as JSON, the way <code>GET /members</code> and
+ * <code>GET /members/summary</code> do, reading the table one keyset page at a time:
+ * <ul>
+ * <li><code>listEntities</code> loads full Member entities into the persistence context</li>
+ * <li><code>listSummaries</code> runs the projection query, which builds MemberSummary objects that
+ * the persistence context never tracks</li>
+ * </ul>
+ * Run with <code>-prof gc</code> to compare the memory allocated by each listing as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProjectionBenchmark {
+
+    /**
+     * Same page size as the member listings of MemberResourceRESTService.
+     */
+    private static final int PAGE_SIZE = 500;
+
+    @Param({ "1000", "10000" })
+    public int memberCount;
+
+    private EntityManagerFactory emf;
+
+    private EntityManager em;
+
+    private MemberRepository repository;
+
+    /**
+     * Discards the JSON, so that only producing it is measured.
+     */
+    private final OutputStream output = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws Exception {
+        emf = Kitchensink.createEntityManagerFactory();
+        em = emf.createEntityManager();
+        repository = Kitchensink.createRepository(em);
+
+        List<Member> members = new ArrayList<Member>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            members.add(Kitchensink.newMember("Member " + (char) ('A' + i % 26), "member" + i + "@mailinator.com"));
+        }
+        em.getTransaction().begin();
+        Kitchensink.createRegistration(em).registerAll(members);
+        em.getTransaction().commit();
+        em.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public int listEntities() throws IOException {
+        MemberJsonWriter writer = new MemberJsonWriter(output);
+        writer.writeStartArray();
+        int count = 0;
+        String lastName = null;
+        Long lastId = null;
+        List<Member> page;
+        do {
+            page = repository.findPageOrderedByName(lastName, lastId, PAGE_SIZE);
+            for (Member member : page) {
+                writer.writeMember(member);
+            }
+            if (!page.isEmpty()) {
+                Member last = page.get(page.size() - 1);
+                lastName = last.getName();
+                lastId = last.getId();
+            }
+            count += page.size();
+            // Like the container-managed entity manager, outside of a transaction, after each query
+            em.clear();
+        } while (page.size() == PAGE_SIZE);
+        writer.writeEndArray();
+        writer.flush();
+        return count;
+    }
+
+    @Benchmark
+    public int listSummaries() throws IOException {
+        MemberJsonWriter writer = new MemberJsonWriter(output);
+        writer.writeStartArray();
+        int count = 0;
+        String lastName = null;
+        Long lastId = null;
+        List<MemberSummary> page;
+        do {
+            page = repository.findSummaryPageOrderedByName(lastName, lastId, PAGE_SIZE);
+            for (MemberSummary summary : page) {
+                writer.writeMemberSummary(summary);
+            }
+            if (!page.isEmpty()) {
+                MemberSummary last = page.get(page.size() - 1);
+                lastName = last.getName();
+                lastId = last.getId();
+            }
+            count += page.size();
+            em.clear();
+        } while (page.size() == PAGE_SIZE);
+        writer.writeEndArray();
+        writer.flush();
+        return count;
+    }
+}
@@ -0,0 +1,141 @@
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares three ways of running the two hot member queries, looking a member up by email and
+ * listing all members by name:
+ * <ul>
+ * <li><code>criteria</code> builds a CriteriaQuery on every call, as MemberRepository used to</li>
+ * <li><code>jpql</code> creates the query from its JPQL string on every call</li>
+ * <li><code>named</code> runs the named query defined on Member, as MemberRepository does now</li>
+ * </ul>
+ * The persistence context is cleared after every call, like the container does at the end of each
+ * transaction, so every call loads its members afresh.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QueryBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    public int memberCount;
+
+    private EntityManagerFactory emf;
+
+    private EntityManager em;
+
+    private MemberRepository repository;
+
+    private final Random random = new Random();
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws Exception {
+        emf = Kitchensink.createEntityManagerFactory();
+        em = emf.createEntityManager();
+        repository = Kitchensink.createRepository(em);
+
+        List<Member> members = new ArrayList<Member>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            members.add(Kitchensink.newMember("Member " + (char) ('A' + i % 26), email(i)));
+        }
+        em.getTransaction().begin();
+        Kitchensink.createRegistration(em).registerAll(members);
+        em.getTransaction().commit();
+        em.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public Member findByEmailCriteria() {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Member> criteria = cb.createQuery(Member.class);
+        Root<Member> member = criteria.from(Member.class);
+        criteria.select(member).where(cb.equal(member.get("email"), nextEmail()));
+        Member result = em.createQuery(criteria).getSingleResult();
+        em.clear();
+        return result;
+    }
+
+    @Benchmark
+    public Member findByEmailJpql() {
+        Member result = em.createQuery("select m from Member m where m.email = :email", Member.class)
+                .setParameter("email", nextEmail()).getSingleResult();
+        em.clear();
+        return result;
+    }
+
+    @Benchmark
+    public Member findByEmailNamed() {
+        Member result = repository.findByEmail(nextEmail());
+        em.clear();
+        return result;
+    }
+
+    @Benchmark
+    public List<Member> findAllOrderedByNameCriteria() {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Member> criteria = cb.createQuery(Member.class);
+        Root<Member> member = criteria.from(Member.class);
+        criteria.select(member).orderBy(cb.asc(member.get("name")), cb.asc(member.get("id")));
+        List<Member> result = em.createQuery(criteria).getResultList();
+        em.clear();
+        return result;
+    }
+
+    @Benchmark
+    public List<Member> findAllOrderedByNameJpql() {
+        List<Member> result = em.createQuery("select m from Member m order by m.name, m.id", Member.class)
+                .getResultList();
+        em.clear();
+        return result;
+    }
+
+    @Benchmark
+    public List<Member> findAllOrderedByNameNamed() {
+        List<Member> result = repository.findAllOrderedByName();
+        em.clear();
+        return result;
+    }
+
+    private String nextEmail() {
+        return email(random.nextInt(memberCount));
+    }
+
+    private static String email(int i) {
+        return "member" + i + "@mailinator.com";
+    }
+}
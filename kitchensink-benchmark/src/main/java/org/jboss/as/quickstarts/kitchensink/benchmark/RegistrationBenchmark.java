@@ -0,0 +1,165 @@
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.NoResultException;
+
+import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.service.DuplicateEmailException;
+import org.jboss.as.quickstarts.kitchensink.service.MemberRegistration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the two ways of registering a member under contention, with several threads registering
+ * at once, a share of them reusing emails that are already taken, and tables of several sizes:
+ * <ul>
+ * <li><code>checkThenInsert</code> is what <code>POST /members</code> used to do, look the email up
+ * and only then insert the member, in two round-trips</li>
+ * <li><code>insertRelyingOnConstraint</code> is what it does now, insert straight away and let the
+ * unique constraint on the email reject duplicates</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RegistrationBenchmark {
+
+    /**
+     * Percentage of registrations that reuse an email that is already taken.
+     */
+    @Param({ "0", "20", "50" })
+    public int duplicatePercentage;
+
+    /**
+     * Number of members registered before the run, whose emails are taken.
+     */
+    @Param({ "1000", "10000" })
+    public int memberCount;
+
+    private EntityManagerFactory emf;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws Exception {
+        emf = Kitchensink.createEntityManagerFactory();
+        EntityManager em = emf.createEntityManager();
+        List<Member> members = new ArrayList<Member>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            members.add(Kitchensink.newMember("Taken Member", takenEmail(i)));
+        }
+        em.getTransaction().begin();
+        Kitchensink.createRegistration(em).registerAll(members);
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        emf.close();
+    }
+
+    /**
+     * The beans of one benchmark thread, wired around its own entity manager.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+        EntityManager em;
+        MemberRepository repository;
+        MemberRegistration registration;
+        final Random random = new Random();
+
+        @Setup(Level.Trial)
+        public void open(RegistrationBenchmark benchmark) {
+            em = benchmark.emf.createEntityManager();
+            repository = Kitchensink.createRepository(em);
+            registration = Kitchensink.createRegistration(em);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            // The entity manager is already closed if the factory was closed first
+            if (em.isOpen()) {
+                em.close();
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean checkThenInsert(Session session) throws Exception {
+        Member member = nextMember(session.random);
+        try {
+            session.repository.findByEmail(member.getEmail());
+            return false;
+        } catch (NoResultException e) {
+            // The email is free, go ahead
+        }
+        return register(session, member);
+    }
+
+    @Benchmark
+    public boolean insertRelyingOnConstraint(Session session) throws Exception {
+        return register(session, nextMember(session.random));
+    }
+
+    /**
+     * Registers a member in its own transaction, like the container does around the registration
+     * EJB.
+     *
+     * @return whether the member was registered
+     */
+    private static boolean register(Session session, Member member) throws Exception {
+        EntityTransaction tx = session.em.getTransaction();
+        tx.begin();
+        try {
+            session.registration.register(member);
+            tx.commit();
+            return true;
+        } catch (DuplicateEmailException e) {
+            tx.rollback();
+            return false;
+        } finally {
+            // Don't let the persistence context grow over the run
+            session.em.clear();
+        }
+    }
+
+    private Member nextMember(Random random) {
+        String email;
+        if (random.nextInt(100) < duplicatePercentage) {
+            email = takenEmail(random.nextInt(memberCount));
+        } else {
+            email = "member" + sequence.incrementAndGet() + "@mailinator.com";
+        }
+        return Kitchensink.newMember("Benchmark Member", email);
+    }
+
+    private static String takenEmail(int i) {
+        return "taken" + i + "@mailinator.com";
+    }
+}
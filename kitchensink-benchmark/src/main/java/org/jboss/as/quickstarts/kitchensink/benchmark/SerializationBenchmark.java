@@ -0,0 +1,95 @@
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.rest.MemberJsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serializing members to JSON, without any database access:
+ * <ul>
+ * <li><code>objectMapperList</code> data binds a whole list with Jackson, as the JAX-RS JSON provider
+ * does for a <code>List&lt;Member&gt;</code> entity</li>
+ * <li><code>streamingWriterList</code> writes the same list with MemberJsonWriter, as the member
+ * listings of MemberResourceRESTService do</li>
+ * <li><code>objectMapperMember</code> data binds a single member, as <code>GET /members/{id}</code>
+ * does</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializationBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    public int memberCount;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private List<Member> members;
+
+    /**
+     * Discards the JSON, so that only producing it is measured.
+     */
+    private final OutputStream output = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void createMembers() {
+        members = new ArrayList<Member>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            Member member = Kitchensink.newMember("Member " + (char) ('A' + i % 26), "member" + i + "@mailinator.com");
+            member.setId(Long.valueOf(i));
+            member.setVersion(0L);
+            members.add(member);
+        }
+    }
+
+    @Benchmark
+    public void objectMapperList() throws IOException {
+        mapper.writeValue(output, members);
+    }
+
+    @Benchmark
+    public void streamingWriterList() throws IOException {
+        MemberJsonWriter writer = new MemberJsonWriter(output);
+        writer.writeStartArray();
+        for (Member member : members) {
+            writer.writeMember(member);
+        }
+        writer.writeEndArray();
+        writer.flush();
+    }
+
+    @Benchmark
+    public void objectMapperMember() throws IOException {
+        mapper.writeValue(output, members.get(memberCount / 2));
+    }
+}
@@ -0,0 +1,114 @@
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.service.MemberRegistration;
+import org.jboss.as.quickstarts.kitchensink.service.MemberValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what validating a member costs compared with registering it, the two steps of
+ * <code>POST /members</code>:
+ * <ul>
+ * <li><code>beanValidation</code> and <code>fastPath</code> validate a valid member with Bean
+ * Validation alone, and with MemberValidator, which skips Bean Validation for members that are
+ * certainly valid</li>
+ * <li><code>beanValidationInvalid</code> and <code>fastPathInvalid</code> do the same for a member
+ * with an invalid name, which the fast path hands over to Bean Validation</li>
+ * <li><code>register</code> registers a valid member in its own transaction, for scale</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ValidationBenchmark {
+
+    private Validator validator;
+
+    private MemberValidator memberValidator;
+
+    private EntityManagerFactory emf;
+
+    private EntityManager em;
+
+    private MemberRegistration registration;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Member validMember = Kitchensink.newMember("Jane Doe", "jane.doe@mailinator.com");
+
+    private final Member invalidMember = Kitchensink.newMember("Jane Doe 2", "jane.doe@mailinator.com");
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        memberValidator = Kitchensink.createMemberValidator();
+        if (!memberValidator.isFastPathEnabled()) {
+            throw new IllegalStateException("The validation fast path doesn't match the constraints of Member");
+        }
+        emf = Kitchensink.createEntityManagerFactory();
+        em = emf.createEntityManager();
+        registration = Kitchensink.createRegistration(em);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Member>> beanValidation() {
+        return validator.validate(validMember);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Member>> fastPath() {
+        return memberValidator.validate(validMember);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Member>> beanValidationInvalid() {
+        return validator.validate(invalidMember);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Member>> fastPathInvalid() {
+        return memberValidator.validate(invalidMember);
+    }
+
+    @Benchmark
+    public Member register() throws Exception {
+        Member member = Kitchensink.newMember("Jane Doe", "member" + sequence.incrementAndGet() + "@mailinator.com");
+        EntityTransaction tx = em.getTransaction();
+        tx.begin();
+        registration.register(member);
+        tx.commit();
+        em.clear();
+        return member;
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.html5_mobile.rest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.jboss.as.quickstarts.html5_mobile.util.BloomFilter;
+
+/**
+ * Remembers, in a {@link BloomFilter}, the email of every registered member, so that registering with
+ * a new email doesn't need to query the member table to know the email is free.
+ * 
+ * <p>
+ * The filter is loaded from the table when the application starts, and sized for the larger of
+ * <code>html5mobile.emailFilter.expectedMembers</code> (100000 by default) and twice the members
+ * already registered, for a false positive probability of
+ * <code>html5mobile.emailFilter.falsePositiveRate</code> (0.01 by default). Only an email the filter
+ * might contain is looked up in the table.
+ * </p>
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MemberEmailFilter {
+
+   public static final String EXPECTED_MEMBERS_PROPERTY = "html5mobile.emailFilter.expectedMembers";
+
+   public static final String FALSE_POSITIVE_RATE_PROPERTY = "html5mobile.emailFilter.falsePositiveRate";
+
+   private static final long DEFAULT_EXPECTED_MEMBERS = 100000;
+
+   private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+   @Inject
+   private Logger log;
+
+   @Inject
+   private EntityManager em;
+
+   private BloomFilter filter;
+
+   private final AtomicLong skippedQueries = new AtomicLong();
+
+   private final AtomicLong queries = new AtomicLong();
+
+   private final AtomicLong falsePositives = new AtomicLong();
+
+   @PostConstruct
+   public void load() {
+      long expectedMembers = Long.getLong(EXPECTED_MEMBERS_PROPERTY, DEFAULT_EXPECTED_MEMBERS);
+      String rate = System.getProperty(FALSE_POSITIVE_RATE_PROPERTY);
+      double falsePositiveRate = rate == null ? DEFAULT_FALSE_POSITIVE_RATE : Double.parseDouble(rate);
+
+      @SuppressWarnings("unchecked")
+      List<String> emails = em.createQuery("select m.email from Member m").getResultList();
+      filter = new BloomFilter(Math.max(expectedMembers, 2L * emails.size()), falsePositiveRate);
+      for (String email : emails) {
+         filter.put(email);
+      }
+      log.info("Loaded the emails of " + emails.size() + " members in a filter of " + filter.getSizeInBytes()
+            + " bytes");
+   }
+
+   /**
+    * @return <code>false</code> if no member is registered with the email, <code>true</code> if one
+    *         might be and the table must be checked
+    */
+   public boolean mightExist(String email) {
+      if (filter.mightContain(email)) {
+         return true;
+      }
+      skippedQueries.incrementAndGet();
+      return false;
+   }
+
+   /**
+    * Records the answer of the table for an email the filter said might exist.
+    */
+   public void recordQuery(boolean exists) {
+      queries.incrementAndGet();
+      if (!exists) {
+         falsePositives.incrementAndGet();
+      }
+   }
+
+   /**
+    * Adds the email of a member being registered. Should the registration roll back, the email stays
+    * in the filter, which only costs a query if it is registered again.
+    */
+   public void add(String email) {
+      filter.put(email);
+   }
+
+   /**
+    * @return the size of the filter, its current false positive rate, and how often it spared a query
+    *         or was wrong
+    */
+   public Map<String, Object> getStatistics() {
+      Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+      statistics.put("sizeInBytes", filter.getSizeInBytes());
+      statistics.put("hashCount", filter.getHashCount());
+      statistics.put("bitsSet", filter.getBitsSet());
+      statistics.put("currentFalsePositiveRate", filter.getFalsePositiveProbability());
+      statistics.put("skippedQueries", skippedQueries.get());
+      statistics.put("queries", queries.get());
+      statistics.put("falsePositives", falsePositives.get());
+      return statistics;
+   }
+}
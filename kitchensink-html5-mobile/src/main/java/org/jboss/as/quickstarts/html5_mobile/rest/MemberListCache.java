@@ -0,0 +1,164 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.html5_mobile.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.Reception;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.jboss.as.quickstarts.html5_mobile.model.Member;
+
+/**
+ * Holds the current {@link MemberListSnapshot}, shared by the XML and JSON listings of
+ * {@link MemberService}.
+ * 
+ * <p>
+ * The member table is only queried once, for the first listing. Members registered afterwards are
+ * queued once the registering transaction has committed, and merged into a copy of the list the next
+ * time it is read, so that a burst of registrations makes one new version of the snapshot rather than
+ * one each. Should the list go unread while {@value #MAX_QUEUED} members are registered, they are merged
+ * by the registering thread. Readers only lock to merge.
+ * </p>
+ */
+@ApplicationScoped
+public class MemberListCache {
+
+   // In Java order, which the database collation may not match, so the loaded list is sorted again
+   private static final Comparator<Member> BY_NAME_AND_ID = new Comparator<Member>() {
+      public int compare(Member m1, Member m2) {
+         int byName = m1.getName().compareTo(m2.getName());
+         return byName != 0 ? byName : m1.getId().compareTo(m2.getId());
+      }
+   };
+
+   /**
+    * Number of registered members queued, at most, until they are merged.
+    */
+   private static final int MAX_QUEUED = 1000;
+
+   @Inject
+   private EntityManager em;
+
+   private volatile MemberListSnapshot snapshot;
+
+   // Set while the table is queried, during which registered members are queued rather than left to
+   // the load, which may have read past them
+   private volatile boolean loading;
+
+   private final Queue<Member> registeredMembers = new ConcurrentLinkedQueue<Member>();
+
+   private final AtomicInteger queuedCount = new AtomicInteger();
+
+   public MemberListSnapshot getSnapshot() {
+      if (snapshot == null) {
+         load();
+      }
+      if (!registeredMembers.isEmpty()) {
+         mergeRegisteredMembers();
+      }
+      return snapshot;
+   }
+
+   public void onMemberRegistered(
+         @Observes(notifyObserver = Reception.IF_EXISTS, during = TransactionPhase.AFTER_SUCCESS) final Member member) {
+      if (snapshot == null && !loading) {
+         // Not loaded yet, the member is committed and will be part of the initial load
+         return;
+      }
+      registeredMembers.add(member);
+      if (queuedCount.incrementAndGet() >= MAX_QUEUED && snapshot != null) {
+         mergeRegisteredMembers();
+      }
+   }
+
+   private synchronized void load() {
+      if (snapshot != null) {
+         return;
+      }
+      loading = true;
+      try {
+         @SuppressWarnings("unchecked")
+         List<Member> members = em.createQuery("select m from Member m order by m.name").getResultList();
+         List<Member> sorted = new ArrayList<Member>(members);
+         Collections.sort(sorted, BY_NAME_AND_ID);
+         snapshot = new MemberListSnapshot(1, Collections.unmodifiableList(sorted));
+      } finally {
+         loading = false;
+      }
+   }
+
+   /**
+    * Publishes the next version of the snapshot, with the queued members merged in. A member that is
+    * already in the snapshot, because it was committed just before the initial load, is not added twice.
+    */
+   private synchronized void mergeRegisteredMembers() {
+      List<Member> added = new ArrayList<Member>();
+      Member member;
+      while ((member = registeredMembers.poll()) != null) {
+         added.add(member);
+         queuedCount.decrementAndGet();
+      }
+      if (added.isEmpty()) {
+         return;
+      }
+      Collections.sort(added, BY_NAME_AND_ID);
+
+      MemberListSnapshot current = snapshot;
+      List<Member> members = current.getMembers();
+      List<Member> merged = new ArrayList<Member>(members.size() + added.size());
+      int i = 0;
+      int j = 0;
+      while (i < members.size() || j < added.size()) {
+         if (j == added.size()) {
+            merged.add(members.get(i++));
+         } else if (i == members.size()) {
+            addIfNew(merged, added.get(j++));
+         } else {
+            int order = BY_NAME_AND_ID.compare(members.get(i), added.get(j));
+            if (order < 0) {
+               merged.add(members.get(i++));
+            } else if (order > 0) {
+               addIfNew(merged, added.get(j++));
+            } else {
+               // Already in the snapshot
+               j++;
+            }
+         }
+      }
+      if (merged.size() > members.size()) {
+         snapshot = new MemberListSnapshot(current.getVersion() + 1, Collections.unmodifiableList(merged));
+      }
+   }
+
+   private static void addIfNew(List<Member> merged, Member member) {
+      // The same member may have been queued twice
+      if (merged.isEmpty() || BY_NAME_AND_ID.compare(merged.get(merged.size() - 1), member) != 0) {
+         merged.add(member);
+      }
+   }
+}
@@ -0,0 +1,122 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.html5_mobile.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+
+import org.jboss.as.quickstarts.html5_mobile.model.Member;
+
+/**
+ * An immutable, versioned snapshot of all members ordered by name, along with its renderings.
+ * 
+ * <p>
+ * Each representation of the list, XML or JSON, is rendered the first time it is asked for, by the
+ * same JAX-RS provider that would render the list itself, and the bytes are kept for as long as the
+ * snapshot is current. The version increases with every new snapshot.
+ * </p>
+ */
+public class MemberListSnapshot {
+
+   private static final Type MEMBER_LIST_TYPE = new GenericEntity<List<Member>>(new ArrayList<Member>()) {
+   }.getType();
+
+   private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+   private final long version;
+
+   private final List<Member> members;
+
+   private final ConcurrentMap<MediaType, byte[]> renderings = new ConcurrentHashMap<MediaType, byte[]>(4);
+
+   public MemberListSnapshot(long version, List<Member> members) {
+      this.version = version;
+      this.members = members;
+   }
+
+   public long getVersion() {
+      return version;
+   }
+
+   /**
+    * @return the members, ordered by name, in an unmodifiable list
+    */
+   public List<Member> getMembers() {
+      return members;
+   }
+
+   /**
+    * Returns the list rendered in the given media type, rendering it if this is the first time it is
+    * asked for. Concurrent first requests may both render it, the renderings are identical.
+    */
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   public byte[] render(MediaType mediaType, Providers providers) throws IOException {
+      byte[] rendering = renderings.get(mediaType);
+      if (rendering == null) {
+         MessageBodyWriter<List> writer = providers.getMessageBodyWriter(List.class, MEMBER_LIST_TYPE,
+               NO_ANNOTATIONS, mediaType);
+         if (writer == null) {
+            throw new IllegalStateException("No provider can write the member list as " + mediaType);
+         }
+         ByteArrayOutputStream out = new ByteArrayOutputStream(256 + 128 * members.size());
+         writer.writeTo(members, List.class, MEMBER_LIST_TYPE, NO_ANNOTATIONS, mediaType, new Headers(), out);
+         rendering = out.toByteArray();
+         renderings.putIfAbsent(mediaType, rendering);
+      }
+      return rendering;
+   }
+
+   /**
+    * Receives, and drops, any header the provider would set while rendering the list.
+    */
+   private static class Headers extends HashMap<String, List<Object>> implements MultivaluedMap<String, Object> {
+      private static final long serialVersionUID = 1L;
+
+      public void putSingle(String key, Object value) {
+         List<Object> values = new ArrayList<Object>(1);
+         values.add(value);
+         put(key, values);
+      }
+
+      public void add(String key, Object value) {
+         List<Object> values = get(key);
+         if (values == null) {
+            values = new ArrayList<Object>(1);
+            put(key, values);
+         }
+         values.add(value);
+      }
+
+      public Object getFirst(String key) {
+         List<Object> values = get(key);
+         return values == null || values.isEmpty() ? null : values.get(0);
+      }
+   }
+}
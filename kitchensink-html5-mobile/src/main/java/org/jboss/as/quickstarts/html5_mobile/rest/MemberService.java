@@ -16,15 +16,15 @@
  */
 package org.jboss.as.quickstarts.html5_mobile.rest;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
-import javax.ejb.Stateful;
-import javax.enterprise.context.RequestScoped;
+import javax.ejb.Stateless;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
@@ -38,8 +38,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Providers;
 
 import org.jboss.as.quickstarts.html5_mobile.model.Member;
 
@@ -47,10 +49,13 @@ import org.jboss.as.quickstarts.html5_mobile.model.Member;
  * JAX-RS Example
  * <p/>
  * This class produces a RESTful service to read/write the contents of the members table.
+ * <p/>
+ * The service holds no conversational state, only injected resources, so it is a stateless session
+ * bean: requests are served by instances drawn from a pool, rather than by a stateful bean created
+ * and destroyed for each of them.
  */
 @Path("/members")
-@RequestScoped
-@Stateful
+@Stateless
 public class MemberService {
    @Inject
    private Logger log;
@@ -64,29 +69,35 @@ public class MemberService {
    @Inject
    private Validator validator;
 
+   @Inject
+   private MemberListCache memberListCache;
+
+   @Inject
+   private MemberEmailFilter memberEmailFilter;
+
+   @Inject
+   private RegistrationQueue registrationQueue;
+
+   /**
+    * Lists all members ordered by name, as XML. The XML and JSON listings share one snapshot of the
+    * member list, kept up to date as members register, and each rendering of a snapshot is cached.
+    */
    @GET
    @Produces("text/xml")
-   public List<Member> listAllMembers() {
-      // Use @SupressWarnings to force IDE to ignore warnings about "genericizing" the results of
-      // this query
-      @SuppressWarnings("unchecked")
-
-      // We recommend centralizing inline queries such as this one into @NamedQuery annotations on
-      // the @Entity class
-      // as described in the named query blueprint:
-      // https://blueprints.dev.java.net/bpcatalog/ee5/persistence/namedquery.html
-      final List<Member> results = em.createQuery("select m from Member m order by m.name").getResultList();
-      return results;
+   public Response listAllMembers(@Context Providers providers) throws IOException {
+      return renderMemberList(MediaType.TEXT_XML_TYPE, providers);
    }
 
    @GET
    @Path("/json")
    @Produces(MediaType.APPLICATION_JSON)
-   public List<Member> listAllMembersJSON() {
-      @SuppressWarnings("unchecked")
+   public Response listAllMembersJSON(@Context Providers providers) throws IOException {
+      return renderMemberList(MediaType.APPLICATION_JSON_TYPE, providers);
+   }
 
-      final List<Member> results = em.createQuery("select m from Member m order by m.name").getResultList();
-      return results;
+   private Response renderMemberList(MediaType mediaType, Providers providers) throws IOException {
+      byte[] rendering = memberListCache.getSnapshot().render(mediaType, providers);
+      return Response.ok(rendering, mediaType).build();
    }
 
    @GET
@@ -103,6 +114,31 @@ public class MemberService {
       return em.find(Member.class, id);
    }
    
+   /**
+    * Reports the status of a registration accepted for writing behind, by the ticket it was given.
+    */
+   @GET
+   @Path("/registrations/{ticket}")
+   @Produces(MediaType.APPLICATION_JSON)
+   public Response lookupRegistration(@PathParam("ticket") String ticket) {
+      QueuedRegistration registration = registrationQueue.getRegistration(ticket);
+      if (registration == null) {
+         return Response.status(Response.Status.NOT_FOUND).build();
+      }
+      return Response.ok(registration.toMap()).build();
+   }
+
+   /**
+    * Reports the memory taken by the email filter of the registrations, how often it spared a query, and
+    * how often it was wrong.
+    */
+   @GET
+   @Path("/emailFilter")
+   @Produces(MediaType.APPLICATION_JSON)
+   public Map<String, Object> getEmailFilterStatistics() {
+      return memberEmailFilter.getStatistics();
+   }
+
    @GET
    @Path("/new")
    @Produces(MediaType.APPLICATION_JSON)
@@ -124,6 +160,9 @@ public class MemberService {
    /**
     * Creates a new member from the values provided.  Performs validation, and will return a JAX-RS response with either
     * 200 ok, or with a map of fields, and related errors.
+    * <p/>
+    * When registrations are written behind, a valid member is queued instead, and the response is a 202 with the
+    * location of the status of the registration, or a 503 if the queue is full.
     */
    public Response createNewMember(String name, String email, String phone) {
        Response.ResponseBuilder builder = null;
@@ -138,15 +177,20 @@ public class MemberService {
           //Validates member using bean validation
           validateMember(member);
 
-          //Register the member
-          log.info("Registering " + member.getName());
-          em.persist(member);
+          if (registrationQueue.isEnabled()) {
+             builder = queueRegistration(member);
+          } else {
+             //Register the member
+             log.info("Registering " + member.getName());
+             em.persist(member);
+             memberEmailFilter.add(member.getEmail());
 
-          //Trigger the creation event
-          memberEventSrc.fire(member);
+             //Trigger the creation event
+             memberEventSrc.fire(member);
 
-          //Create an "ok" response
-          builder = Response.ok();
+             //Create an "ok" response
+             builder = Response.ok();
+          }
        } catch (ConstraintViolationException ce) {
           //Handle bean validation issues
           builder = createViolationResponse(ce.getConstraintViolations());
@@ -160,6 +204,18 @@ public class MemberService {
        return builder.build();
     }
 
+   private Response.ResponseBuilder queueRegistration(Member member) {
+      QueuedRegistration registration = registrationQueue.offer(member);
+      if (registration == null) {
+         return Response.status(Response.Status.SERVICE_UNAVAILABLE);
+      }
+      log.info("Queued the registration of " + member.getName());
+      memberEmailFilter.add(member.getEmail());
+      // Relative to the base URI of the application
+      URI status = URI.create("members/registrations/" + registration.getTicket());
+      return Response.status(Response.Status.ACCEPTED).location(status).entity(registration.toMap());
+   }
+
    /**
     * <p>Validates the given Member variable and throws validation exceptions based on the type of error.
     * If the error is standard bean validation errors then it will throw a ConstraintValidationException
@@ -206,15 +262,20 @@ public class MemberService {
    /**
     * Checks if a member with the same email address is already registered.  This is the only way to
     * easily capture the "@UniqueConstraint(columnNames = "email")" constraint from the Member class.
+    * The table is only queried if the email filter can't rule the email out.
     *
     * @param email The email to check
     * @return True if the email already exists, and false otherwise
     */
    public boolean emailAlreadyExists(String email) {
+      if (!memberEmailFilter.mightExist(email)) {
+         return false;
+      }
       Query checkEmailExists = em.createQuery(" SELECT COUNT(b.email) FROM Member b WHERE b.email=:emailparam");
       checkEmailExists.setParameter("emailparam", email);
       long matchCounter = 0;
       matchCounter = (Long) checkEmailExists.getSingleResult();
+      memberEmailFilter.recordQuery(matchCounter > 0);
       if (matchCounter > 0) {
          return true;
       }
@@ -0,0 +1,104 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.html5_mobile.rest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jboss.as.quickstarts.html5_mobile.model.Member;
+
+/**
+ * A validated registration waiting in the {@link RegistrationQueue} to be written, and then the
+ * outcome of writing it, as reported by the status resource of the registration.
+ */
+public class QueuedRegistration {
+
+   public enum Status {
+      QUEUED, REGISTERED, REJECTED, FAILED
+   }
+
+   private final String ticket;
+
+   private final String name;
+
+   private final String email;
+
+   private final String phoneNumber;
+
+   private volatile Status status = Status.QUEUED;
+
+   private volatile Long memberId;
+
+   public QueuedRegistration(String ticket, Member member) {
+      this.ticket = ticket;
+      this.name = member.getName();
+      this.email = member.getEmail();
+      this.phoneNumber = member.getPhoneNumber();
+   }
+
+   public String getTicket() {
+      return ticket;
+   }
+
+   public String getEmail() {
+      return email;
+   }
+
+   public Status getStatus() {
+      return status;
+   }
+
+   /**
+    * @return a new, transient, member to persist, so that a registration written in a batch that rolls
+    *         back can be written again
+    */
+   public Member newMember() {
+      Member member = new Member();
+      member.setName(name);
+      member.setEmail(email);
+      member.setPhoneNumber(phoneNumber);
+      return member;
+   }
+
+   void registered(Long id) {
+      memberId = id;
+      status = Status.REGISTERED;
+   }
+
+   void rejected() {
+      status = Status.REJECTED;
+   }
+
+   void failed() {
+      status = Status.FAILED;
+   }
+
+   /**
+    * @return the status of the registration, in the form of the JSON responses of {@link MemberService}
+    */
+   public Map<String, Object> toMap() {
+      Map<String, Object> map = new LinkedHashMap<String, Object>();
+      map.put("ticket", ticket);
+      map.put("status", status.name().toLowerCase());
+      if (status == Status.REGISTERED) {
+         map.put("id", memberId);
+      } else if (status == Status.REJECTED) {
+         map.put("email", "Email taken");
+      }
+      return map;
+   }
+}
@@ -0,0 +1,285 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.html5_mobile.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+
+import org.jboss.as.quickstarts.html5_mobile.model.Member;
+
+/**
+ * Queues validated registrations, when <code>html5mobile.writeBehind.enabled</code> is
+ * <code>true</code>, and writes them in batches on a timer, so that a burst of registrations takes a
+ * few transactions rather than one each. The property is read on every registration.
+ * 
+ * <p>
+ * The queue holds at most <code>html5mobile.writeBehind.queueSize</code> registrations (1000 by
+ * default). Every <code>html5mobile.writeBehind.flushInterval</code> milliseconds (50 by default) the
+ * queued registrations are written, in batches of up to <code>html5mobile.writeBehind.batchSize</code>
+ * registrations (100 by default). Should a batch fail, its registrations are written again one by one,
+ * so that one bad registration doesn't fail the others.
+ * </p>
+ * 
+ * <p>
+ * The status of the last registrations is kept, by ticket, for the status resource of
+ * {@link MemberService}. When the application is undeployed, new registrations are turned away and
+ * those already queued are written, for up to 30 seconds; only those left after that are lost.
+ * </p>
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class RegistrationQueue {
+
+   public static final String ENABLED_PROPERTY = "html5mobile.writeBehind.enabled";
+
+   public static final String QUEUE_SIZE_PROPERTY = "html5mobile.writeBehind.queueSize";
+
+   public static final String BATCH_SIZE_PROPERTY = "html5mobile.writeBehind.batchSize";
+
+   public static final String FLUSH_INTERVAL_PROPERTY = "html5mobile.writeBehind.flushInterval";
+
+   private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+   private static final int DEFAULT_BATCH_SIZE = 100;
+
+   private static final long DEFAULT_FLUSH_INTERVAL = 50;
+
+   /**
+    * Number of written registrations whose status is kept, on top of the queued ones.
+    */
+   private static final int RETAINED_STATUSES = 10000;
+
+   /**
+    * Seconds given to write the queued registrations on undeploy.
+    */
+   private static final long DRAIN_TIMEOUT = 30;
+
+   @Inject
+   private Logger log;
+
+   // An EJB reference, so that the writer is still there when the queue is destroyed
+   @EJB
+   private RegistrationWriter writer;
+
+   @Resource
+   private TimerService timerService;
+
+   private int batchSize;
+
+   private long flushInterval;
+
+   private BlockingQueue<QueuedRegistration> queue;
+
+   private Map<String, QueuedRegistration> registrations;
+
+   // Held to queue, and taken exclusively to stop, so that nothing is queued once stopping is set
+   private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+
+   private boolean stopping;
+
+   // Held while writing, so that a timeout doesn't overlap the previous one, nor the drain on undeploy
+   private final Lock writeLock = new ReentrantLock();
+
+   private volatile Timer timer;
+
+   @PostConstruct
+   public void start() {
+      final int queueSize = Integer.getInteger(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE);
+      batchSize = Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE);
+      flushInterval = Math.max(1, Long.getLong(FLUSH_INTERVAL_PROPERTY, DEFAULT_FLUSH_INTERVAL));
+      queue = new ArrayBlockingQueue<QueuedRegistration>(queueSize);
+      registrations = Collections.synchronizedMap(new LinkedHashMap<String, QueuedRegistration>() {
+         private static final long serialVersionUID = 1L;
+
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<String, QueuedRegistration> eldest) {
+            return size() > queueSize + RETAINED_STATUSES;
+         }
+      });
+   }
+
+   /**
+    * Turns new registrations away and writes those already accepted, which were answered with a
+    * ticket, for up to {@link #DRAIN_TIMEOUT} seconds.
+    */
+   @PreDestroy
+   public void stop() {
+      stopLock.writeLock().lock();
+      try {
+         stopping = true;
+      } finally {
+         stopLock.writeLock().unlock();
+      }
+      if (timer == null) {
+         return;
+      }
+      timer.cancel();
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT);
+      try {
+         // Waits for a timeout already writing
+         if (writeLock.tryLock(DRAIN_TIMEOUT, TimeUnit.SECONDS)) {
+            try {
+               List<QueuedRegistration> batch = new ArrayList<QueuedRegistration>(batchSize);
+               while (System.nanoTime() - deadline < 0 && writeNextBatch(batch)) {
+                  // Until nothing is queued, or the time is up
+               }
+            } finally {
+               writeLock.unlock();
+            }
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      if (!queue.isEmpty()) {
+         log.warning(queue.size() + " queued registrations were not written");
+      }
+   }
+
+   public boolean isEnabled() {
+      return Boolean.getBoolean(ENABLED_PROPERTY);
+   }
+
+   /**
+    * Queues a validated member for registration.
+    * 
+    * @return the queued registration, or <code>null</code> if the queue is full or the application is
+    *         being undeployed
+    */
+   public QueuedRegistration offer(Member member) {
+      stopLock.readLock().lock();
+      try {
+         if (stopping) {
+            return null;
+         }
+         QueuedRegistration registration = new QueuedRegistration(UUID.randomUUID().toString(), member);
+         // Known before it is queued, so that its status can be asked for as soon as it is accepted
+         registrations.put(registration.getTicket(), registration);
+         if (!queue.offer(registration)) {
+            registrations.remove(registration.getTicket());
+            return null;
+         }
+         if (timer == null) {
+            startTimer();
+         }
+         return registration;
+      } finally {
+         stopLock.readLock().unlock();
+      }
+   }
+
+   /**
+    * @return the registration with the given ticket, or <code>null</code> if it is unknown, or so old
+    *         that its status is no longer kept
+    */
+   public QueuedRegistration getRegistration(String ticket) {
+      return registrations.get(ticket);
+   }
+
+   @Timeout
+   public void writeQueued() {
+      // Skipped if the previous timeout is still writing, it writes whatever is queued meanwhile
+      if (!writeLock.tryLock()) {
+         return;
+      }
+      try {
+         List<QueuedRegistration> batch = new ArrayList<QueuedRegistration>(batchSize);
+         while (writeNextBatch(batch)) {
+            // Until nothing is queued
+         }
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   private synchronized void startTimer() {
+      if (timer == null) {
+         timer = timerService.createIntervalTimer(flushInterval, flushInterval, new TimerConfig(null, false));
+         log.info("Registrations are queued, up to " + (queue.size() + queue.remainingCapacity())
+               + ", and written in batches of up to " + batchSize + " every " + flushInterval + " ms");
+      }
+   }
+
+   /**
+    * @return <code>false</code> if nothing was queued
+    */
+   private boolean writeNextBatch(List<QueuedRegistration> batch) {
+      if (queue.drainTo(batch, batchSize) == 0) {
+         return false;
+      }
+      write(batch);
+      batch.clear();
+      return true;
+   }
+
+   private void write(List<QueuedRegistration> batch) {
+      try {
+         complete(batch, writer.writeBatch(batch));
+      } catch (RuntimeException e) {
+         log.log(Level.FINE, "Batch of " + batch.size() + " registrations failed, writing them one by one", e);
+         for (QueuedRegistration registration : batch) {
+            List<QueuedRegistration> single = Collections.singletonList(registration);
+            try {
+               complete(single, writer.writeBatch(single));
+            } catch (RuntimeException singleFailure) {
+               log.log(Level.WARNING, "Registration of " + registration.getEmail() + " failed", singleFailure);
+               registration.failed();
+            }
+         }
+      }
+   }
+
+   private static void complete(List<QueuedRegistration> batch, Map<QueuedRegistration, Member> written) {
+      for (QueuedRegistration registration : batch) {
+         Member member = written.get(registration);
+         if (member != null) {
+            registration.registered(member.getId());
+         } else {
+            registration.rejected();
+         }
+      }
+   }
+}
@@ -0,0 +1,75 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.html5_mobile.rest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ejb.Stateless;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.jboss.as.quickstarts.html5_mobile.model.Member;
+
+/**
+ * Writes a batch of queued registrations in a single transaction, on behalf of the
+ * {@link RegistrationQueue}.
+ */
+@Stateless
+public class RegistrationWriter {
+
+   @Inject
+   private EntityManager em;
+
+   @Inject
+   private Event<Member> memberEventSrc;
+
+   /**
+    * Persists the members of a batch, but for those whose email is already taken, by a registered
+    * member or by an earlier registration of the batch, and fires the creation event for each.
+    * 
+    * @return the members written, by registration
+    */
+   public Map<QueuedRegistration, Member> writeBatch(List<QueuedRegistration> batch) {
+      List<String> emails = new ArrayList<String>(batch.size());
+      for (QueuedRegistration registration : batch) {
+         emails.add(registration.getEmail());
+      }
+      @SuppressWarnings("unchecked")
+      List<String> registeredEmails = em.createQuery("select m.email from Member m where m.email in (:emails)")
+            .setParameter("emails", emails).getResultList();
+      Set<String> takenEmails = new HashSet<String>(registeredEmails);
+
+      Map<QueuedRegistration, Member> written = new LinkedHashMap<QueuedRegistration, Member>();
+      for (QueuedRegistration registration : batch) {
+         if (takenEmails.add(registration.getEmail())) {
+            Member member = registration.newMember();
+            em.persist(member);
+            memberEventSrc.fire(member);
+            written.put(registration, member);
+         }
+      }
+      // Fails here, rather than on commit, should a synchronous registration have taken an email since
+      em.flush();
+      return written;
+   }
+}
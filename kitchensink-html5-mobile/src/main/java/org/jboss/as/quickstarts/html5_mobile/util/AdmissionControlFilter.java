@@ -0,0 +1,190 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.html5_mobile.util;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * <p>Protects the container threads and the datasource from overload by turning away the requests to the
+ * <i>/rest/*</i> path that exceed either of two limits, with a <i>429 Too Many Requests</i> and a <i>Retry-After</i>
+ * header:
+ * </p>
+ * <ul>
+ * <li>each client, told apart by its address, may make <i>html5mobile.admission.rate</i> requests a second, in
+ * bursts of up to <i>html5mobile.admission.burst</i> requests (twice the rate by default)</li>
+ * <li>at most <i>html5mobile.admission.maxConcurrent</i> requests are served at once, whichever
+ * clients they come from</li>
+ * </ul>
+ * <p>Both limits are 0 by default, and a limit of 0 or less disables it, so requests are only limited once the
+ * limits are set. The token buckets of the clients are spread over independently locked
+ * stripes, each remembering at most the <i>html5mobile.admission.maxClients</i> / 64 clients (10000 in all by
+ * default) it has seen last, so neither contention nor memory grows with the number of clients.
+ * </p>
+ * <p>The filter is mapped in <i>WEB-INF/web.xml</i>, ahead of the {@link JSONPRequestFilter}.
+ * </p>
+ */
+public class AdmissionControlFilter implements Filter {
+
+   public static final String RATE_PROPERTY = "html5mobile.admission.rate";
+
+   public static final String BURST_PROPERTY = "html5mobile.admission.burst";
+
+   public static final String MAX_CONCURRENT_PROPERTY = "html5mobile.admission.maxConcurrent";
+
+   public static final String MAX_CLIENTS_PROPERTY = "html5mobile.admission.maxClients";
+
+   private static final int SC_TOO_MANY_REQUESTS = 429;
+
+   private static final int STRIPES = 64;
+
+   private static final Logger log = Logger.getLogger(AdmissionControlFilter.class.getName());
+
+   private double tokensPerNano;
+
+   private double burst;
+
+   private Semaphore concurrentRequests;
+
+   private Stripe[] stripes;
+
+   @Override
+   public void init(FilterConfig config) throws ServletException {
+      double rate = Double.parseDouble(System.getProperty(RATE_PROPERTY, "0"));
+      burst = Math.max(1, Double.parseDouble(System.getProperty(BURST_PROPERTY, Double.toString(2 * rate))));
+      int maxConcurrent = Integer.getInteger(MAX_CONCURRENT_PROPERTY, 0);
+      int maxClients = Integer.getInteger(MAX_CLIENTS_PROPERTY, 10000);
+
+      if (rate > 0) {
+         tokensPerNano = rate / TimeUnit.SECONDS.toNanos(1);
+         stripes = new Stripe[STRIPES];
+         for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(Math.max(1, maxClients / STRIPES));
+         }
+      }
+      if (maxConcurrent > 0) {
+         concurrentRequests = new Semaphore(maxConcurrent);
+      }
+      log.info("REST requests are limited to " + (rate > 0 ? rate + " a second per client, in bursts of " + burst
+            : "any rate") + ", and " + (maxConcurrent > 0 ? maxConcurrent : "any number") + " at once");
+   }
+
+   @Override
+   public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+         ServletException {
+      if (stripes != null) {
+         String client = request.getRemoteAddr();
+         long waitNanos = stripes[(client.hashCode() & Integer.MAX_VALUE) % STRIPES].acquire(client, System.nanoTime());
+         if (waitNanos > 0) {
+            reject(response, waitNanos);
+            return;
+         }
+      }
+      if (concurrentRequests == null) {
+         chain.doFilter(request, response);
+         return;
+      }
+      if (!concurrentRequests.tryAcquire()) {
+         // No telling when a request will end, a second is as good a guess as any
+         reject(response, TimeUnit.SECONDS.toNanos(1));
+         return;
+      }
+      try {
+         chain.doFilter(request, response);
+      } finally {
+         concurrentRequests.release();
+      }
+   }
+
+   @Override
+   public void destroy() {
+      // Nothing to release, and requests still in flight may use the limits until they end
+   }
+
+   private static void reject(ServletResponse response, long waitNanos) throws IOException {
+      HttpServletResponse httpResponse = (HttpServletResponse) response;
+      long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+      // Only a status, rather than an error page, so the response costs next to nothing
+      httpResponse.setStatus(SC_TOO_MANY_REQUESTS);
+      httpResponse.setHeader("Retry-After", Long.toString(seconds));
+   }
+
+   /**
+    * The token buckets of the clients whose addresses hash to the same stripe, least recently seen first.
+    */
+   private class Stripe {
+
+      private final Map<String, Bucket> buckets;
+
+      Stripe(final int maxClients) {
+         buckets = new LinkedHashMap<String, Bucket>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+               return size() > maxClients;
+            }
+         };
+      }
+
+      /**
+       * Takes a token from the bucket of the client, if it has one.
+       *
+       * @return 0 if the client was given a token, otherwise how long until it will have one
+       */
+      synchronized long acquire(String client, long now) {
+         Bucket bucket = buckets.get(client);
+         if (bucket == null) {
+            // A client forgotten, or never seen, starts with a full bucket
+            bucket = new Bucket(burst, now);
+            buckets.put(client, bucket);
+         } else {
+            bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.refilled) * tokensPerNano);
+            bucket.refilled = now;
+         }
+         if (bucket.tokens >= 1) {
+            bucket.tokens--;
+            return 0;
+         }
+         return (long) Math.ceil((1 - bucket.tokens) / tokensPerNano);
+      }
+   }
+
+   private static class Bucket {
+
+      double tokens;
+
+      long refilled;
+
+      Bucket(double tokens, long refilled) {
+         this.tokens = tokens;
+         this.refilled = refilled;
+      }
+   }
+}
@@ -0,0 +1,153 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.html5_mobile.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of strings, safe to use from any number of threads without locking.
+ * 
+ * <p>
+ * {@link #mightContain(String)} never answers <code>false</code> for a string that was put in the
+ * filter, and answers <code>true</code> for a string that wasn't with a probability that grows as the
+ * filter fills up, see {@link #getFalsePositiveProbability()}. Strings can't be removed.
+ * </p>
+ */
+public class BloomFilter {
+
+   private static final double LN2 = Math.log(2);
+
+   private final AtomicLongArray words;
+
+   private final long bitCount;
+
+   private final int hashCount;
+
+   private final AtomicLong bitsSet = new AtomicLong();
+
+   /**
+    * Sizes the filter so that, once <code>expectedInsertions</code> strings have been put in it, it
+    * answers <code>true</code> for other strings with a probability of about
+    * <code>falsePositiveProbability</code>.
+    */
+   public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+      if (expectedInsertions < 1) {
+         throw new IllegalArgumentException("Expected insertions must be positive: " + expectedInsertions);
+      }
+      if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+         throw new IllegalArgumentException("False positive probability must be between 0 and 1: "
+               + falsePositiveProbability);
+      }
+      long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (LN2 * LN2));
+      int wordCount = (int) Math.min(Integer.MAX_VALUE, (bits + 63) / 64);
+      words = new AtomicLongArray(wordCount);
+      bitCount = 64L * wordCount;
+      hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * LN2));
+   }
+
+   public void put(String value) {
+      long hash = hash(value);
+      int h1 = (int) hash;
+      int h2 = (int) (hash >>> 32);
+      for (int i = 1; i <= hashCount; i++) {
+         setBit(index(h1, h2, i));
+      }
+   }
+
+   public boolean mightContain(String value) {
+      long hash = hash(value);
+      int h1 = (int) hash;
+      int h2 = (int) (hash >>> 32);
+      for (int i = 1; i <= hashCount; i++) {
+         long index = index(h1, h2, i);
+         if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @return the probability that {@link #mightContain(String)} answers <code>true</code> for a string
+    *         that was never put in the filter, given the bits set so far
+    */
+   public double getFalsePositiveProbability() {
+      return Math.pow((double) bitsSet.get() / bitCount, hashCount);
+   }
+
+   public long getBitCount() {
+      return bitCount;
+   }
+
+   public long getBitsSet() {
+      return bitsSet.get();
+   }
+
+   public int getHashCount() {
+      return hashCount;
+   }
+
+   /**
+    * @return the memory taken by the bits of the filter
+    */
+   public long getSizeInBytes() {
+      return bitCount / 8;
+   }
+
+   private void setBit(long index) {
+      int word = (int) (index >>> 6);
+      long mask = 1L << index;
+      while (true) {
+         long current = words.get(word);
+         if ((current & mask) != 0) {
+            return;
+         }
+         if (words.compareAndSet(word, current, current | mask)) {
+            bitsSet.incrementAndGet();
+            return;
+         }
+      }
+   }
+
+   /**
+    * Derives the i-th index from two hashes, as described by Kirsch and Mitzenmacher in "Less Hashing,
+    * Same Performance: Building a Better Bloom Filter".
+    */
+   private long index(int h1, int h2, int i) {
+      long combined = h1 + (long) i * h2;
+      return (combined & Long.MAX_VALUE) % bitCount;
+   }
+
+   /**
+    * FNV-1a over the characters of the string, followed by the final mix of MurmurHash3 so that the
+    * upper and lower halves of the result are both well distributed.
+    */
+   private static long hash(String value) {
+      long hash = 0xcbf29ce484222325L;
+      for (int i = 0; i < value.length(); i++) {
+         hash ^= value.charAt(i);
+         hash *= 0x100000001b3L;
+      }
+      hash ^= hash >>> 33;
+      hash *= 0xff51afd7ed558ccdL;
+      hash ^= hash >>> 33;
+      hash *= 0xc4ceb9fe1a85ec53L;
+      hash ^= hash >>> 33;
+      return hash;
+   }
+}
@@ -16,9 +16,10 @@
  */
 package org.jboss.as.quickstarts.html5_mobile.util;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
 import java.util.regex.Pattern;
 
 import javax.servlet.Filter;
@@ -28,7 +29,6 @@ import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
-import javax.servlet.annotation.WebFilter;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
@@ -40,10 +40,11 @@ import javax.servlet.http.HttpServletResponseWrapper;
  * <p>To qualify for wrapping the request must be made to the <i>/rest/*</i> path, and contain a query parameter call
  * <i>jsoncallback</> that defines the JSONP callback method to use with the response.
  * </p>
+ * <p>The filter is mapped in <i>WEB-INF/web.xml</i>, after the {@link AdmissionControlFilter}.
+ * </p>
  * @author balunasj
  *
  */
-@WebFilter("/rest/*")
 public class JSONPRequestFilter implements Filter {
     //The callback method to use
     private static final String CALLBACK_METHOD = "jsonpcallback";
@@ -52,6 +53,8 @@ public class JSONPRequestFilter implements Filter {
     public static final Pattern SAFE_PRN = Pattern.compile("[a-zA-Z0-9_\\.]+");
     
     public static final String CONTENT_TYPE= "application/javascript";
+
+    private static final byte[] SUFFIX = { ')', ';' };
     
     @Override
     public void init(FilterConfig config) throws ServletException {
@@ -81,39 +84,18 @@ public class JSONPRequestFilter implements Filter {
                 throw new ServletException("JSONP Callback method '" + CALLBACK_METHOD + "' parameter not valid function");
             }
             
-            //Will stream updated response
-            final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-            
-            //Create a custom response wrapper to adding in the padding
-            HttpServletResponseWrapper responseWrapper = new HttpServletResponseWrapper(httpResponse) {
-
-                @Override
-                public ServletOutputStream getOutputStream() throws IOException {
-                    return new ServletOutputStream() {
-                        @Override
-                        public void write(int b) throws IOException {
-                            byteStream.write(b);
-                        }
-                    };
-                }
-
-                @Override
-                public PrintWriter getWriter() throws IOException {
-                    return new PrintWriter(byteStream);
-                }                
-            };
+            //Override response content and encoding, the downstream content type is ignored
+            response.setContentType(CONTENT_TYPE);
+            response.setCharacterEncoding("UTF-8");
+
+            //Stream the response through the padding, rather than holding it all in memory
+            PaddedResponseWrapper responseWrapper = new PaddedResponseWrapper(httpResponse, callback);
 
             //Process the rest of the filter chain, including the JAX-RS request
             chain.doFilter(request, responseWrapper);
-            
-            //Override response content and encoding
-            response.setContentType(CONTENT_TYPE);
-            response.setCharacterEncoding("UTF-8");
-            
-            //Write the padded updates to the output stream.
-            response.getOutputStream().write((callback + "(").getBytes());
-            response.getOutputStream().write(byteStream.toByteArray());
-            response.getOutputStream().write(");".getBytes());
+
+            //Close the padding, whatever the size of the response
+            responseWrapper.finish();
         }
     }
 
@@ -130,4 +112,127 @@ public class JSONPRequestFilter implements Filter {
     public void destroy() {
         //Nothing to do
     }
+
+    /**
+     * <p>A response wrapper that writes the padding around the downstream response as it streams through.
+     * The opening <i>callback(</i> is written ahead of the first byte of the response, bulk writes are passed
+     * straight to the container's output stream, and {@link #finish()} appends the closing <i>);</i>. The
+     * response is never copied.</p>
+     * <p>The content type and length set downstream are ignored, as the padding changes both.</p>
+     */
+    private static class PaddedResponseWrapper extends HttpServletResponseWrapper {
+
+        private final byte[] prefix;
+
+        private boolean prefixWritten;
+
+        private ServletOutputStream outputStream;
+
+        private PrintWriter writer;
+
+        PaddedResponseWrapper(HttpServletResponse response, String callback) throws UnsupportedEncodingException {
+            super(response);
+            //The callback has been checked against SAFE_PRN, so it is plain ASCII
+            prefix = (callback + "(").getBytes("UTF-8");
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                final ServletOutputStream out = getResponse().getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        writePrefix();
+                        out.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        writePrefix();
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        out.flush();
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), "UTF-8"));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentType(String type) {
+            //Always served as JavaScript
+        }
+
+        @Override
+        public void setCharacterEncoding(String charset) {
+            //Always served as UTF-8
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            //The padding makes the response longer
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (!isOverridden(name)) {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (!isOverridden(name)) {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (!isOverridden(name)) {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if (!isOverridden(name)) {
+                super.addIntHeader(name, value);
+            }
+        }
+
+        /**
+         * Writes out anything still buffered by the downstream writer, and closes the padding.
+         */
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            writePrefix();
+            getResponse().getOutputStream().write(SUFFIX);
+        }
+
+        private void writePrefix() throws IOException {
+            if (!prefixWritten) {
+                prefixWritten = true;
+                getResponse().getOutputStream().write(prefix);
+            }
+        }
+
+        private static boolean isOverridden(String header) {
+            return "Content-Type".equalsIgnoreCase(header) || "Content-Length".equalsIgnoreCase(header);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.html5_mobile.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import org.jboss.as.quickstarts.html5_mobile.util.BloomFilter;
+
+/**
+ * Tests the {@link BloomFilter} of the registered emails on its own, without a container.
+ */
+public class BloomFilterTest {
+
+   private static final int EXPECTED_INSERTIONS = 10000;
+
+   private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+   private static final int PROBES = 100000;
+
+   @Test
+   public void testNoFalseNegatives() {
+      BloomFilter filter = filledFilter();
+
+      for (int i = 0; i < EXPECTED_INSERTIONS; i++) {
+         assertTrue("The filter should contain " + email("member", i), filter.mightContain(email("member", i)));
+      }
+   }
+
+   @Test
+   public void testFalsePositiveRate() {
+      BloomFilter filter = filledFilter();
+
+      int falsePositives = 0;
+      for (int i = 0; i < PROBES; i++) {
+         if (filter.mightContain(email("stranger", i))) {
+            falsePositives++;
+         }
+      }
+      double measuredRate = (double) falsePositives / PROBES;
+
+      // Within half the target either way, plenty for 100000 probes at 1%
+      assertEquals("Unexpected measured false positive rate", FALSE_POSITIVE_PROBABILITY, measuredRate,
+            FALSE_POSITIVE_PROBABILITY / 2);
+      assertEquals("Unexpected estimated false positive rate", FALSE_POSITIVE_PROBABILITY,
+            filter.getFalsePositiveProbability(), FALSE_POSITIVE_PROBABILITY / 2);
+   }
+
+   private static BloomFilter filledFilter() {
+      BloomFilter filter = new BloomFilter(EXPECTED_INSERTIONS, FALSE_POSITIVE_PROBABILITY);
+      for (int i = 0; i < EXPECTED_INSERTIONS; i++) {
+         filter.put(email("member", i));
+      }
+      return filter;
+   }
+
+   private static String email(String name, int i) {
+      return name + i + "@mailinator.com";
+   }
+}
@@ -34,8 +34,15 @@ import org.jboss.shrinkwrap.api.spec.WebArchive;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import org.jboss.as.quickstarts.html5_mobile.rest.MemberEmailFilter;
+import org.jboss.as.quickstarts.html5_mobile.rest.MemberListCache;
+import org.jboss.as.quickstarts.html5_mobile.rest.MemberListSnapshot;
 import org.jboss.as.quickstarts.html5_mobile.rest.MemberService;
+import org.jboss.as.quickstarts.html5_mobile.rest.QueuedRegistration;
+import org.jboss.as.quickstarts.html5_mobile.rest.RegistrationQueue;
+import org.jboss.as.quickstarts.html5_mobile.rest.RegistrationWriter;
 import org.jboss.as.quickstarts.html5_mobile.model.Member;
+import org.jboss.as.quickstarts.html5_mobile.util.BloomFilter;
 import org.jboss.as.quickstarts.html5_mobile.util.Resources;
 
 /**
@@ -48,7 +55,9 @@ public class MemberRegistrationTest {
    @Deployment
    public static Archive<?> createTestArchive() {
       return ShrinkWrap.create(WebArchive.class, "test.war")
-            .addClasses(Member.class, MemberService.class, Resources.class)
+            .addClasses(Member.class, MemberService.class, MemberListCache.class, MemberListSnapshot.class,
+                  MemberEmailFilter.class, BloomFilter.class, RegistrationQueue.class, RegistrationWriter.class,
+                  QueuedRegistration.class, Resources.class)
             .addAsResource("META-INF/persistence.xml", "META-INF/persistence.xml")      
             .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml");
    }
@@ -67,6 +76,36 @@ public class MemberRegistrationTest {
       log.info(" New member was persisted and returned status " + response.getStatus());
    }
 
+   @SuppressWarnings("unchecked")
+   @Test
+   public void testQueuedRegister() throws Exception {
+      System.setProperty(RegistrationQueue.ENABLED_PROPERTY, "true");
+      try {
+         Response response = memberRegistration.createNewMember("Joan Doe", "joan@mailinator.com", "2125554321");
+
+         assertEquals("Unexpected response status", 202, response.getStatus());
+         assertNotNull("The response should point to the status of the registration", response.getMetadata()
+               .getFirst("Location"));
+         String ticket = (String) ((Map<String, Object>) response.getEntity()).get("ticket");
+
+         // Written on the next timeout of the queue
+         Map<String, Object> registration;
+         long deadline = System.currentTimeMillis() + 10000;
+         do {
+            Thread.sleep(50);
+            response = memberRegistration.lookupRegistration(ticket);
+            assertEquals("Unexpected status response status", 200, response.getStatus());
+            registration = (Map<String, Object>) response.getEntity();
+         } while ("queued".equals(registration.get("status")) && System.currentTimeMillis() < deadline);
+
+         assertEquals("Unexpected registration status", "registered", registration.get("status"));
+         assertNotNull("The registered member should have an id", registration.get("id"));
+         log.info("Queued member was persisted with id " + registration.get("id"));
+      } finally {
+         System.clearProperty(RegistrationQueue.ENABLED_PROPERTY);
+      }
+   }
+
    @SuppressWarnings("unchecked")
    @Test
    public void testInvalidRegister() throws Exception {
@@ -0,0 +1,154 @@
+package org.jboss.as.quickstarts.kitchensink.data;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.RegisteredMembers;
+
+/**
+ * An opt-in, size-bounded cache of {@link Member} entities used by {@link MemberRepository} to
+ * answer lookups by id and by email without a database round-trip.
+ *
+ * <p>
+ * The cache is disabled unless the <code>kitchensink.memberCache.enabled</code> system property is
+ * set to <code>true</code>. Each index holds at most <code>kitchensink.memberCache.maxSize</code>
+ * entries (10000 by default) and evicts the least recently used entry when full.
+ * </p>
+ *
+ * <p>
+ * Only members that were found are cached, a lookup that finds nothing always goes to the
+ * database. Entries are invalidated whenever a member is registered, once the registering
+ * transaction has committed.
+ * </p>
+ */
+@ApplicationScoped
+public class MemberCache {
+
+   public static final String ENABLED_PROPERTY = "kitchensink.memberCache.enabled";
+
+   public static final String MAX_SIZE_PROPERTY = "kitchensink.memberCache.maxSize";
+
+   private static final int DEFAULT_MAX_SIZE = 10000;
+
+   @Inject
+   private Logger log;
+
+   private boolean enabled;
+
+   private Map<Long, Member> membersById;
+
+   private Map<String, Member> membersByEmail;
+
+   private final AtomicLong hits = new AtomicLong();
+
+   private final AtomicLong misses = new AtomicLong();
+
+   @PostConstruct
+   public void configure() {
+      enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+      int maxSize = Integer.getInteger(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE);
+      membersById = createLruMap(maxSize);
+      membersByEmail = createLruMap(maxSize);
+      if (enabled) {
+         log.info("Member cache enabled, holding up to " + maxSize + " members");
+      }
+   }
+
+   public boolean isEnabled() {
+      return enabled;
+   }
+
+   /**
+    * @return the cached member with the given id, or <code>null</code> if it is not cached
+    */
+   public Member getById(Long id) {
+      return record(membersById.get(id));
+   }
+
+   /**
+    * @return the cached member with the given email, or <code>null</code> if it is not cached
+    */
+   public Member getByEmail(String email) {
+      return record(membersByEmail.get(email));
+   }
+
+   public void put(Member member) {
+      if (enabled && member != null && member.getId() != null) {
+         membersById.put(member.getId(), member);
+         membersByEmail.put(member.getEmail(), member);
+      }
+   }
+
+   /**
+    * Drops any entry that may be stale once a member has been registered. Runs after the
+    * registering transaction commits, so a concurrent lookup can't re-cache the old state.
+    */
+   public void onMemberRegistered(@Observes(during = TransactionPhase.AFTER_SUCCESS) final Member member) {
+      if (enabled) {
+         evict(member);
+      }
+   }
+
+   public void onMembersRegistered(@Observes(during = TransactionPhase.AFTER_SUCCESS) final RegisteredMembers registered) {
+      if (enabled) {
+         for (Member member : registered.getMembers()) {
+            evict(member);
+         }
+      }
+   }
+
+   private void evict(Member member) {
+      if (member.getId() != null) {
+         membersById.remove(member.getId());
+      }
+      membersByEmail.remove(member.getEmail());
+   }
+
+   public void clear() {
+      membersById.clear();
+      membersByEmail.clear();
+   }
+
+   public long getHitCount() {
+      return hits.get();
+   }
+
+   public long getMissCount() {
+      return misses.get();
+   }
+
+   public int getSize() {
+      return membersById.size();
+   }
+
+   private Member record(Member member) {
+      if (member == null) {
+         misses.incrementAndGet();
+      } else {
+         hits.incrementAndGet();
+      }
+      return member;
+   }
+
+   private static <K, V> Map<K, V> createLruMap(final int maxSize) {
+      // An access ordered LinkedHashMap moves entries on every get, so reads need the lock too
+      return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+         private static final long serialVersionUID = 1L;
+
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+         }
+      });
+   }
+}
@@ -1,38 +1,162 @@
 package org.jboss.as.quickstarts.kitchensink.data;
 
-import javax.annotation.PostConstruct;
-import javax.enterprise.context.RequestScoped;
+import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.enterprise.event.Reception;
+import javax.enterprise.event.TransactionPhase;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.RegisteredMembers;
 
-@RequestScoped
+/**
+ * Holds an application-wide snapshot of all members, sorted by name, that views render from memory.
+ *
+ * <p>
+ * The table is only read once, the first time the list is asked for. Members registered afterwards
+ * are queued as they are registered and merged into a new copy of the snapshot the next time the list
+ * is asked for, so the cost of a registration doesn't grow with the size of the table, and a burst of
+ * registrations is merged in one pass. Should the list go unread while {@value #MAX_QUEUED} members
+ * are registered, they are merged by the registering thread, so that the queue stays bounded. A
+ * snapshot is never modified once published, so readers need no locking.
+ * </p>
+ */
+@ApplicationScoped
 public class MemberListProducer {
 
+   /**
+    * The order of the snapshot, which matches the order of
+    * {@link MemberRepository#findAllOrderedByName()}.
+    */
+   private static final Comparator<Member> BY_NAME_AND_ID = new Comparator<Member>() {
+      public int compare(Member m1, Member m2) {
+         int byName = m1.getName().compareTo(m2.getName());
+         return byName != 0 ? byName : m1.getId().compareTo(m2.getId());
+      }
+   };
+
+   /**
+    * Number of registered members queued, at most, until they are merged.
+    */
+   private static final int MAX_QUEUED = 1000;
+
    @Inject
    private MemberRepository memberRepository;
 
-   private List<Member> members;
+   private volatile List<Member> members;
+
+   // Set while the table is read, during which registered members are queued rather than left to the
+   // load, which may have read past them
+   private volatile boolean loading;
+
+   private final Queue<Member> registeredMembers = new ConcurrentLinkedQueue<Member>();
+
+   private final AtomicInteger queuedCount = new AtomicInteger();
 
    // @Named provides access the return value via the EL variable name "members" in the UI (e.g.,
    // Facelets or JSP view)
    @Produces
    @Named
    public List<Member> getMembers() {
+      if (members == null) {
+         retrieveAllMembersOrderedByName();
+      }
+      if (!registeredMembers.isEmpty()) {
+         mergeRegisteredMembers();
+      }
       return members;
    }
 
-   public void onMemberListChanged(@Observes(notifyObserver = Reception.IF_EXISTS) final Member member) {
-      retrieveAllMembersOrderedByName();
+   // Until the list has been asked for there is no snapshot to keep up to date, and members
+   // registered in the meantime will be part of the initial load
+   public void onMemberListChanged(
+         @Observes(notifyObserver = Reception.IF_EXISTS, during = TransactionPhase.AFTER_SUCCESS) final Member member) {
+      queue(Collections.singletonList(member));
+   }
+
+   public void onMembersRegistered(
+         @Observes(notifyObserver = Reception.IF_EXISTS, during = TransactionPhase.AFTER_SUCCESS) final RegisteredMembers registered) {
+      queue(registered.getMembers());
+   }
+
+   private void queue(List<Member> registered) {
+      if (members == null && !loading) {
+         return;
+      }
+      registeredMembers.addAll(registered);
+      if (queuedCount.addAndGet(registered.size()) >= MAX_QUEUED && members != null) {
+         mergeRegisteredMembers();
+      }
+   }
+
+   private synchronized void retrieveAllMembersOrderedByName() {
+      if (members != null) {
+         return;
+      }
+      loading = true;
+      try {
+         List<Member> allMembers = memberRepository.findAllOrderedByName();
+         // The database may collate names differently, and the merge relies on the Java order
+         Collections.sort(allMembers, BY_NAME_AND_ID);
+         members = Collections.unmodifiableList(allMembers);
+      } finally {
+         loading = false;
+      }
+   }
+
+   /**
+    * Publishes a new snapshot with the queued members merged in. A member that is already in the
+    * snapshot, because it was committed just before the initial load, is not added twice.
+    */
+   private synchronized void mergeRegisteredMembers() {
+      List<Member> added = new ArrayList<Member>();
+      Member member;
+      while ((member = registeredMembers.poll()) != null) {
+         added.add(member);
+         queuedCount.decrementAndGet();
+      }
+      if (added.isEmpty()) {
+         return;
+      }
+      Collections.sort(added, BY_NAME_AND_ID);
+
+      List<Member> current = members;
+      List<Member> merged = new ArrayList<Member>(current.size() + added.size());
+      int i = 0;
+      int j = 0;
+      while (i < current.size() || j < added.size()) {
+         if (j == added.size()) {
+            merged.add(current.get(i++));
+         } else if (i == current.size()) {
+            addIfNew(merged, added.get(j++));
+         } else {
+            int order = BY_NAME_AND_ID.compare(current.get(i), added.get(j));
+            if (order < 0) {
+               merged.add(current.get(i++));
+            } else if (order > 0) {
+               addIfNew(merged, added.get(j++));
+            } else {
+               // Already in the snapshot
+               j++;
+            }
+         }
+      }
+      members = Collections.unmodifiableList(merged);
    }
 
-   @PostConstruct
-   public void retrieveAllMembersOrderedByName() {
-      members = memberRepository.findAllOrderedByName();
+   private static void addIfNew(List<Member> merged, Member member) {
+      // The same member may have been queued twice
+      if (merged.isEmpty() || BY_NAME_AND_ID.compare(merged.get(merged.size() - 1), member) != 0) {
+         merged.add(member);
+      }
    }
 }
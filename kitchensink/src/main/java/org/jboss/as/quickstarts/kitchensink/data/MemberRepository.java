@@ -3,42 +3,121 @@ package org.jboss.as.quickstarts.kitchensink.data;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Root;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+import org.jboss.as.quickstarts.kitchensink.util.Metered;
 
 @ApplicationScoped
+@Metered
 public class MemberRepository {
 
    @Inject
    private EntityManager em;
 
+   @Inject
+   private MemberCache memberCache;
+
    public Member findById(Long id) {
-      return em.find(Member.class, id);
+      if (!memberCache.isEnabled()) {
+         return em.find(Member.class, id);
+      }
+      Member member = memberCache.getById(id);
+      if (member == null) {
+         member = em.find(Member.class, id);
+         memberCache.put(member);
+      }
+      return member;
    }
 
    public Member findByEmail(String email) {
-      CriteriaBuilder cb = em.getCriteriaBuilder();
-      CriteriaQuery<Member> criteria = cb.createQuery(Member.class);
-      Root<Member> member = criteria.from(Member.class);
-      // Swap criteria statements if you would like to try out type-safe criteria queries, a new
-      // feature in JPA 2.0
-      // criteria.select(member).where(cb.equal(member.get(Member_.name), email));
-      criteria.select(member).where(cb.equal(member.get("email"), email));
-      return em.createQuery(criteria).getSingleResult();
+      if (!memberCache.isEnabled()) {
+         return queryByEmail(email);
+      }
+      Member member = memberCache.getByEmail(email);
+      if (member == null) {
+         member = queryByEmail(email);
+         memberCache.put(member);
+      }
+      return member;
+   }
+
+   private Member queryByEmail(String email) {
+      return em.createNamedQuery(Member.FIND_BY_EMAIL, Member.class).setParameter("email", email)
+            .getSingleResult();
+   }
+
+   /**
+    * Returns those of the given emails that already belong to a registered member, using a single
+    * query for the whole collection.
+    */
+   public List<String> findRegisteredEmails(Collection<String> emails) {
+      if (emails.isEmpty()) {
+         return Collections.emptyList();
+      }
+      return em.createNamedQuery(Member.FIND_REGISTERED_EMAILS, String.class).setParameter("emails", emails)
+            .getResultList();
+   }
+
+   /**
+    * Returns a stamp of the whole member list, computed by the database without loading any member.
+    * Registering a member raises the count and the highest id, updating one raises the sum of the
+    * versions and removing one lowers the count, so the stamp changes whenever the list does.
+    */
+   public String findListStamp() {
+      Object[] stamp = (Object[]) em.createNamedQuery(Member.FIND_LIST_STAMP).getSingleResult();
+      return stamp[0] + "-" + stamp[1] + "-" + stamp[2];
    }
 
    public List<Member> findAllOrderedByName() {
-      CriteriaBuilder cb = em.getCriteriaBuilder();
-      CriteriaQuery<Member> criteria = cb.createQuery(Member.class);
-      Root<Member> member = criteria.from(Member.class);
-      // Swap criteria statements if you would like to try out type-safe criteria queries, a new
-      // feature in JPA 2.0
-      // criteria.select(member).orderBy(cb.asc(member.get(Member_.name)));
-      criteria.select(member).orderBy(cb.asc(member.get("name")));
-      return em.createQuery(criteria).getResultList();
+      return em.createNamedQuery(Member.FIND_ALL_ORDERED_BY_NAME, Member.class).getResultList();
+   }
+
+   /**
+    * Returns the next page of members ordered by name, using the (name, id) pair of the last member
+    * of the previous page as a keyset cursor. Unlike an offset, the cursor lets the database seek
+    * straight to the start of the page, so deep pages cost the same as the first one.
+    * 
+    * @param afterName name of the last member already seen, or <code>null</code> to start at the
+    *        first member
+    * @param afterId id of the last member already seen, ignored if <code>afterName</code> is
+    *        <code>null</code>
+    * @param maxResults maximum number of members to return
+    */
+   public List<Member> findPageOrderedByName(String afterName, Long afterId, int maxResults) {
+      // The id breaks ties between members with the same name, so the order is total and no member
+      // is skipped or repeated across pages
+      TypedQuery<Member> query;
+      if (afterName == null) {
+         query = em.createNamedQuery(Member.FIND_ALL_ORDERED_BY_NAME, Member.class);
+      } else {
+         query = em.createNamedQuery(Member.FIND_PAGE_ORDERED_BY_NAME, Member.class)
+               .setParameter("name", afterName).setParameter("id", afterId);
+      }
+      return query.setMaxResults(maxResults).getResultList();
+   }
+
+   /**
+    * Returns the next page of member summaries ordered by name, with the same keyset cursor as
+    * {@link #findPageOrderedByName(String, Long, int)}. Summaries are plain objects built by the
+    * query, the persistence context doesn't track them.
+    */
+   // Hibernate refuses to create a TypedQuery from a named query with a constructor expression, as it
+   // counts one result per constructor argument, so the query is untyped
+   @SuppressWarnings("unchecked")
+   public List<MemberSummary> findSummaryPageOrderedByName(String afterName, Long afterId, int maxResults) {
+      Query query;
+      if (afterName == null) {
+         query = em.createNamedQuery(Member.FIND_SUMMARIES_ORDERED_BY_NAME);
+      } else {
+         query = em.createNamedQuery(Member.FIND_SUMMARY_PAGE_ORDERED_BY_NAME).setParameter("name", afterName)
+               .setParameter("id", afterId);
+      }
+      return query.setMaxResults(maxResults).getResultList();
    }
 }
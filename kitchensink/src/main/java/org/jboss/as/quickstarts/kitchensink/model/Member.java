@@ -6,8 +6,11 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.constraints.Digits;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
@@ -20,10 +23,38 @@ import org.hibernate.validator.constraints.NotEmpty;
 @Entity
 @XmlRootElement
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = "email"))
+// Named queries are parsed and translated to SQL once, when the persistence unit starts, rather than
+// every time they are run
+@NamedQueries({
+      @NamedQuery(name = Member.FIND_BY_EMAIL, query = "select m from Member m where m.email = :email"),
+      @NamedQuery(name = Member.FIND_ALL_ORDERED_BY_NAME, query = "select m from Member m order by m.name, m.id"),
+      @NamedQuery(name = Member.FIND_PAGE_ORDERED_BY_NAME, query = "select m from Member m"
+            + " where m.name > :name or (m.name = :name and m.id > :id) order by m.name, m.id"),
+      @NamedQuery(name = Member.FIND_SUMMARIES_ORDERED_BY_NAME, query = "select new org.jboss.as.quickstarts.kitchensink.model.MemberSummary"
+            + "(m.id, m.name, m.email, m.phoneNumber) from Member m order by m.name, m.id"),
+      @NamedQuery(name = Member.FIND_SUMMARY_PAGE_ORDERED_BY_NAME, query = "select new org.jboss.as.quickstarts.kitchensink.model.MemberSummary"
+            + "(m.id, m.name, m.email, m.phoneNumber) from Member m"
+            + " where m.name > :name or (m.name = :name and m.id > :id) order by m.name, m.id"),
+      @NamedQuery(name = Member.FIND_REGISTERED_EMAILS, query = "select m.email from Member m where m.email in (:emails)"),
+      @NamedQuery(name = Member.FIND_LIST_STAMP, query = "select count(m), max(m.id), sum(m.version) from Member m") })
 public class Member implements Serializable {
    /** Default value included to remove warning. Remove or modify at will. **/
    private static final long serialVersionUID = 1L;
 
+   public static final String FIND_BY_EMAIL = "Member.findByEmail";
+
+   public static final String FIND_ALL_ORDERED_BY_NAME = "Member.findAllOrderedByName";
+
+   public static final String FIND_PAGE_ORDERED_BY_NAME = "Member.findPageOrderedByName";
+
+   public static final String FIND_SUMMARIES_ORDERED_BY_NAME = "Member.findSummariesOrderedByName";
+
+   public static final String FIND_SUMMARY_PAGE_ORDERED_BY_NAME = "Member.findSummaryPageOrderedByName";
+
+   public static final String FIND_REGISTERED_EMAILS = "Member.findRegisteredEmails";
+
+   public static final String FIND_LIST_STAMP = "Member.findListStamp";
+
    @Id
    @GeneratedValue
    private Long id;
@@ -44,6 +75,11 @@ public class Member implements Serializable {
    @Column(name = "phone_number")
    private String phoneNumber;
 
+   // Incremented by the persistence provider whenever the member is updated, it also identifies the
+   // current state of the member in HTTP entity tags
+   @Version
+   private Long version;
+
    public Long getId() {
       return id;
    }
@@ -75,4 +111,12 @@ public class Member implements Serializable {
    public void setPhoneNumber(String phoneNumber) {
       this.phoneNumber = phoneNumber;
    }
+
+   public Long getVersion() {
+      return version;
+   }
+
+   public void setVersion(Long version) {
+      this.version = version;
+   }
 }
\ No newline at end of file
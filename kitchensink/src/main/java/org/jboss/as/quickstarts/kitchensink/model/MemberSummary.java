@@ -0,0 +1,48 @@
+package org.jboss.as.quickstarts.kitchensink.model;
+
+import java.io.Serializable;
+
+/**
+ * A read-only view of a {@link Member} holding only the fields shown in member listings.
+ * 
+ * <p>
+ * Summaries are built by the database query itself, through a constructor expression, so they are
+ * never managed by the persistence context: no entity snapshot is kept for them and they are never
+ * dirty checked.
+ * </p>
+ */
+public class MemberSummary implements Serializable {
+   /** Default value included to remove warning. Remove or modify at will. **/
+   private static final long serialVersionUID = 1L;
+
+   private final Long id;
+
+   private final String name;
+
+   private final String email;
+
+   private final String phoneNumber;
+
+   public MemberSummary(Long id, String name, String email, String phoneNumber) {
+      this.id = id;
+      this.name = name;
+      this.email = email;
+      this.phoneNumber = phoneNumber;
+   }
+
+   public Long getId() {
+      return id;
+   }
+
+   public String getName() {
+      return name;
+   }
+
+   public String getEmail() {
+      return email;
+   }
+
+   public String getPhoneNumber() {
+      return phoneNumber;
+   }
+}
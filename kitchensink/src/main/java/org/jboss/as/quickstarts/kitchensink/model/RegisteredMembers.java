@@ -0,0 +1,29 @@
+package org.jboss.as.quickstarts.kitchensink.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The event fired once for all the members registered together by a bulk registration, where a
+ * single registration fires the {@link Member} itself.
+ * 
+ * <p>
+ * Observers handle the members as one batch, so that importing many members costs each observer one
+ * notification per transaction rather than one per member.
+ * </p>
+ */
+public class RegisteredMembers {
+
+   private final List<Member> members;
+
+   public RegisteredMembers(List<Member> members) {
+      this.members = Collections.unmodifiableList(members);
+   }
+
+   /**
+    * @return the members registered, in the order they were registered
+    */
+   public List<Member> getMembers() {
+      return members;
+   }
+}
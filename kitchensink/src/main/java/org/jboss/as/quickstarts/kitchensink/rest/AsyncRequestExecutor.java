@@ -0,0 +1,178 @@
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.jboss.as.quickstarts.kitchensink.util.LatencyRecorder;
+import org.jboss.as.quickstarts.kitchensink.util.MetricsInterceptor;
+import org.jboss.resteasy.spi.AsynchronousResponse;
+
+/**
+ * Runs the work of suspended JAX-RS requests on a dedicated, bounded pool of threads, so that slow
+ * database calls hold one of these threads rather than one of the container's HTTP worker threads.
+ * <p/>
+ * The pool runs at most <code>kitchensink.async.threads</code> requests at once (10 by default) and
+ * queues at most <code>kitchensink.async.queueSize</code> more (100 by default). A request that finds
+ * the queue full, or that isn't answered within <code>kitchensink.async.timeout</code> milliseconds
+ * (5000 by default) of being submitted, is answered with a 503 straight away.
+ * <p/>
+ * Each request is timed from its submission until it is resumed, queueing included, and recorded in
+ * the {@link LatencyRecorder} it is submitted with. The {@link MetricsInterceptor} can't time these
+ * requests: the resource method returns as soon as the work is submitted.
+ */
+@ApplicationScoped
+public class AsyncRequestExecutor {
+
+    public static final String THREADS_PROPERTY = "kitchensink.async.threads";
+
+    public static final String QUEUE_SIZE_PROPERTY = "kitchensink.async.queueSize";
+
+    public static final String TIMEOUT_PROPERTY = "kitchensink.async.timeout";
+
+    private static final int DEFAULT_THREADS = 10;
+
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+
+    private static final long DEFAULT_TIMEOUT = 5000;
+
+    @Inject
+    private Logger log;
+
+    private long timeout;
+
+    private ThreadPoolExecutor executor;
+
+    private ScheduledExecutorService timer;
+
+    @PostConstruct
+    public void start() {
+        int threads = Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS);
+        int queueSize = Integer.getInteger(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE);
+        timeout = Long.getLong(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT);
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new DeploymentThreadFactory("member-request-"));
+        timer = Executors.newSingleThreadScheduledExecutor(new DeploymentThreadFactory("member-request-timer-"));
+        log.info("Asynchronous member requests run on " + threads + " threads, with " + queueSize
+                + " more queued, and time out after " + timeout + " ms");
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Computes the response to a suspended request on the pool and resumes the request with it.
+     * <p/>
+     * A {@link WebApplicationException} thrown by the task resumes the request with the response it
+     * carries, any other exception with a 500. The request is resumed exactly once, whichever of the
+     * task and the timeout finishes first. A response with a 5xx status, timeouts and rejections
+     * included, is recorded as a failure.
+     */
+    public void submit(AsynchronousResponse asyncResponse, final Callable<Response> task, LatencyRecorder recorder) {
+        final Resumer resumer = new Resumer(asyncResponse, recorder);
+        final Future<?> execution;
+        try {
+            execution = executor.submit(new Runnable() {
+                public void run() {
+                    Response response;
+                    try {
+                        response = task.call();
+                    } catch (WebApplicationException e) {
+                        response = e.getResponse();
+                    } catch (Exception e) {
+                        log.log(Level.WARNING, "Asynchronous member request failed", e);
+                        response = Response.serverError().build();
+                    }
+                    resumer.resume(response);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            resumer.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+            return;
+        }
+        timer.schedule(new Runnable() {
+            public void run() {
+                if (resumer.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE).build())) {
+                    // Frees the thread if the task is still queued, or is blocked in an interruptible call
+                    execution.cancel(true);
+                }
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Resumes a suspended request with the first response it is given, ignores any later one, and
+     * records how long the request took.
+     */
+    private static class Resumer {
+
+        private final AsynchronousResponse asyncResponse;
+
+        private final LatencyRecorder recorder;
+
+        private final long submittedAt = System.nanoTime();
+
+        private final AtomicBoolean resumed = new AtomicBoolean();
+
+        Resumer(AsynchronousResponse asyncResponse, LatencyRecorder recorder) {
+            this.asyncResponse = asyncResponse;
+            this.recorder = recorder;
+        }
+
+        /**
+         * @return whether the request was resumed with this response
+         */
+        boolean resume(Response response) {
+            if (!resumed.compareAndSet(false, true)) {
+                return false;
+            }
+            recorder.record(System.nanoTime() - submittedAt, response.getStatus() >= 500);
+            asyncResponse.setResponse(response);
+            return true;
+        }
+    }
+
+    /**
+     * Creates daemon threads that load classes, such as JSON providers, with the class loader of the
+     * deployment, whichever thread first needs them.
+     */
+    private static class DeploymentThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+
+        private final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        DeploymentThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        }
+    }
+}
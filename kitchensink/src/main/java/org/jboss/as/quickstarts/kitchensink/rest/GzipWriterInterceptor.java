@@ -0,0 +1,138 @@
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+
+import org.jboss.resteasy.annotations.interception.ServerInterceptor;
+import org.jboss.resteasy.spi.interception.MessageBodyWriterContext;
+import org.jboss.resteasy.spi.interception.MessageBodyWriterInterceptor;
+
+/**
+ * Gzips the JSON responses of the REST application for clients that accept it, when they are larger
+ * than a threshold.
+ * <p/>
+ * JAX-RS 1.1 has no writer interceptors, so this is a RESTEasy server interceptor, picked up like any
+ * other provider of the application. The threshold is set, in bytes, with the
+ * <code>kitchensink.gzip.threshold</code> system property (1024 by default), and a negative value
+ * turns compression off. The buffers used to compress responses are pooled, see
+ * {@link ThresholdGzipOutputStream}.
+ */
+@Provider
+@ServerInterceptor
+public class GzipWriterInterceptor implements MessageBodyWriterInterceptor {
+
+    public static final String THRESHOLD_PROPERTY = "kitchensink.gzip.threshold";
+
+    private static final int DEFAULT_THRESHOLD = 1024;
+
+    /**
+     * Size of the buffer the deflater writes into, and so of the chunks written to the client.
+     */
+    private static final int DEFLATED_BUFFER_SIZE = 8192;
+
+    /**
+     * Buffers beyond this number, only needed at peaks of concurrent responses, are not kept.
+     */
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    @Context
+    private HttpHeaders requestHeaders;
+
+    private final int threshold = Integer.getInteger(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD);
+
+    private final Queue<ThresholdGzipOutputStream.Buffers> pool = new ConcurrentLinkedQueue<ThresholdGzipOutputStream.Buffers>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public void write(MessageBodyWriterContext context) throws IOException, WebApplicationException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+        if (threshold < 0 || !MediaType.APPLICATION_JSON_TYPE.isCompatible(context.getMediaType())
+                || headers.containsKey("Content-Encoding") || headers.containsKey("Content-Length")) {
+            context.proceed();
+            return;
+        }
+        // Caches must not serve a compressed response to a client that didn't ask for one
+        headers.add("Vary", "Accept-Encoding");
+        if (!acceptsGzip(requestHeaders.getRequestHeader("Accept-Encoding"))) {
+            context.proceed();
+            return;
+        }
+
+        OutputStream original = context.getOutputStream();
+        ThresholdGzipOutputStream.Buffers buffers = acquire();
+        ThresholdGzipOutputStream gzip = new ThresholdGzipOutputStream(original, headers, buffers);
+        context.setOutputStream(gzip);
+        try {
+            context.proceed();
+            gzip.finish();
+        } finally {
+            context.setOutputStream(original);
+            release(buffers);
+        }
+    }
+
+    private ThresholdGzipOutputStream.Buffers acquire() {
+        ThresholdGzipOutputStream.Buffers buffers = pool.poll();
+        if (buffers == null) {
+            return new ThresholdGzipOutputStream.Buffers(threshold, DEFLATED_BUFFER_SIZE, Deflater.DEFAULT_COMPRESSION);
+        }
+        pooled.decrementAndGet();
+        return buffers;
+    }
+
+    private void release(ThresholdGzipOutputStream.Buffers buffers) {
+        if (pooled.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            buffers.reset();
+            pool.offer(buffers);
+        } else {
+            pooled.decrementAndGet();
+            buffers.release();
+        }
+    }
+
+    /**
+     * @return whether one of the Accept-Encoding headers lists gzip, or any encoding, with a non-zero
+     *         quality
+     */
+    static boolean acceptsGzip(List<String> acceptEncodings) {
+        if (acceptEncodings == null) {
+            return false;
+        }
+        for (String acceptEncoding : acceptEncodings) {
+            for (String coding : acceptEncoding.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim();
+                if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                    continue;
+                }
+                boolean refused = false;
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            refused = Double.parseDouble(parameter.substring(2)) == 0;
+                        } catch (NumberFormatException e) {
+                            refused = true;
+                        }
+                    }
+                }
+                if (!refused) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
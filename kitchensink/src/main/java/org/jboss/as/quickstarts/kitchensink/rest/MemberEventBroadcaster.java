@@ -0,0 +1,267 @@
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.Reception;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.servlet.AsyncContext;
+
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.RegisteredMembers;
+
+/**
+ * Broadcasts newly registered members to the clients of the member event stream, see
+ * {@link MemberEventServlet}, as server-sent events.
+ * <p/>
+ * Each registration is serialized once, into a single event frame, and handed to a fan-out thread that
+ * adds the same frame to the buffer of every subscriber, so the registering transaction never waits on
+ * the clients and the cost of an event doesn't grow with their number beyond one buffer insert each.
+ * The frames are written out by a small pool of writer threads.
+ * <p/>
+ * The stream is tuned with the following system properties:
+ * <ul>
+ * <li><code>kitchensink.memberEvents.bufferSize</code>, the number of events buffered per client (256
+ * by default)</li>
+ * <li><code>kitchensink.memberEvents.overflowPolicy</code>, what happens when a client's buffer is full,
+ * either <code>drop-oldest</code> (the default) or <code>disconnect</code></li>
+ * <li><code>kitchensink.memberEvents.maxSubscribers</code>, the number of clients served at once (10000
+ * by default)</li>
+ * <li><code>kitchensink.memberEvents.writerThreads</code>, the number of threads writing to clients (4
+ * by default)</li>
+ * <li><code>kitchensink.memberEvents.writeTimeout</code>, the number of seconds a write to a client may
+ * block before the client is disconnected (10 by default), so that clients that stopped reading can't
+ * hold up the writer threads</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class MemberEventBroadcaster {
+
+    public static final String BUFFER_SIZE_PROPERTY = "kitchensink.memberEvents.bufferSize";
+
+    public static final String OVERFLOW_POLICY_PROPERTY = "kitchensink.memberEvents.overflowPolicy";
+
+    public static final String MAX_SUBSCRIBERS_PROPERTY = "kitchensink.memberEvents.maxSubscribers";
+
+    public static final String WRITER_THREADS_PROPERTY = "kitchensink.memberEvents.writerThreads";
+
+    public static final String WRITE_TIMEOUT_PROPERTY = "kitchensink.memberEvents.writeTimeout";
+
+    public static final String DROP_OLDEST = "drop-oldest";
+
+    public static final String DISCONNECT = "disconnect";
+
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private static final int DEFAULT_MAX_SUBSCRIBERS = 10000;
+
+    private static final int DEFAULT_WRITER_THREADS = 4;
+
+    private static final int DEFAULT_WRITE_TIMEOUT = 10;
+
+    /**
+     * Seconds between checks for writes blocked for longer than the write timeout.
+     */
+    private static final long WRITE_CHECK_INTERVAL = 1;
+
+    /**
+     * Seconds between keep-alive comments, which also let the writers notice clients that went away.
+     */
+    private static final long KEEP_ALIVE_INTERVAL = 15;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte[] KEEP_ALIVE_FRAME = ": keep-alive\n\n".getBytes(UTF_8);
+
+    @Inject
+    private Logger log;
+
+    private int bufferSize;
+
+    private boolean disconnectOnOverflow;
+
+    private int maxSubscribers;
+
+    private long writeTimeoutMillis;
+
+    private final Set<MemberEventSubscriber> subscribers = Collections
+            .newSetFromMap(new ConcurrentHashMap<MemberEventSubscriber, Boolean>());
+
+    private final AtomicLong eventIds = new AtomicLong();
+
+    private ScheduledExecutorService fanOut;
+
+    private ExecutorService writers;
+
+    @PostConstruct
+    public void start() {
+        bufferSize = Integer.getInteger(BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE);
+        disconnectOnOverflow = DISCONNECT.equals(System.getProperty(OVERFLOW_POLICY_PROPERTY, DROP_OLDEST));
+        maxSubscribers = Integer.getInteger(MAX_SUBSCRIBERS_PROPERTY, DEFAULT_MAX_SUBSCRIBERS);
+        writeTimeoutMillis = TimeUnit.SECONDS.toMillis(Integer.getInteger(WRITE_TIMEOUT_PROPERTY, DEFAULT_WRITE_TIMEOUT));
+        fanOut = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("member-events-fan-out-"));
+        writers = Executors.newFixedThreadPool(Integer.getInteger(WRITER_THREADS_PROPERTY, DEFAULT_WRITER_THREADS),
+                new DaemonThreadFactory("member-events-writer-"));
+        fanOut.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                for (MemberEventSubscriber subscriber : subscribers) {
+                    subscriber.offer(KEEP_ALIVE_FRAME, true);
+                }
+            }
+        }, KEEP_ALIVE_INTERVAL, KEEP_ALIVE_INTERVAL, TimeUnit.SECONDS);
+        // Writes block until the client reads, a client that stopped reading would hold a writer
+        // thread until its connection times out, and with it the events of every other client
+        fanOut.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                long now = System.currentTimeMillis();
+                for (MemberEventSubscriber subscriber : subscribers) {
+                    subscriber.closeIfStalled(now, writeTimeoutMillis);
+                }
+            }
+        }, WRITE_CHECK_INTERVAL, WRITE_CHECK_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        fanOut.shutdownNow();
+        writers.shutdownNow();
+        for (MemberEventSubscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    /**
+     * @return whether there is room for another client; the limit is only approximate when clients
+     *         subscribe concurrently
+     */
+    public boolean isAcceptingSubscribers() {
+        return subscribers.size() < maxSubscribers;
+    }
+
+    /**
+     * Starts sending events to the client of a suspended request, until the request completes.
+     */
+    public void subscribe(AsyncContext asyncContext) {
+        MemberEventSubscriber subscriber = new MemberEventSubscriber(this, asyncContext, writers, bufferSize,
+                disconnectOnOverflow);
+        subscribers.add(subscriber);
+        asyncContext.addListener(subscriber);
+    }
+
+    void unsubscribe(MemberEventSubscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // Nothing to do until the stream has been asked for, and nobody to tell about rolled back
+    // registrations
+    public void onMemberRegistered(
+            @Observes(notifyObserver = Reception.IF_EXISTS, during = TransactionPhase.AFTER_SUCCESS) final Member member) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        final byte[] frame;
+        try {
+            frame = memberFrame(member);
+        } catch (IOException e) {
+            log.warning("Cannot serialize registered member " + member.getId() + ": " + e);
+            return;
+        }
+        broadcast(frame);
+    }
+
+    /**
+     * Broadcasts the members registered together by a bulk registration as a single frame holding one
+     * <code>member</code> event each, so that the batch takes one fan-out, and one buffer slot per
+     * client.
+     */
+    public void onMembersRegistered(
+            @Observes(notifyObserver = Reception.IF_EXISTS, during = TransactionPhase.AFTER_SUCCESS) final RegisteredMembers registered) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream frames = new ByteArrayOutputStream(256 * registered.getMembers().size());
+        for (Member member : registered.getMembers()) {
+            try {
+                frames.write(memberFrame(member));
+            } catch (IOException e) {
+                log.warning("Cannot serialize registered member " + member.getId() + ": " + e);
+            }
+        }
+        broadcast(frames.toByteArray());
+    }
+
+    private void broadcast(final byte[] frame) {
+        try {
+            fanOut.execute(new Runnable() {
+                public void run() {
+                    for (MemberEventSubscriber subscriber : subscribers) {
+                        subscriber.offer(frame, false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Serializes a member into a <code>member</code> event. The JSON is written on a single line, as
+     * required by the event stream format.
+     */
+    private byte[] memberFrame(Member member) throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(256);
+        frame.write(("id: " + eventIds.incrementAndGet() + "\nevent: member\ndata: ").getBytes(UTF_8));
+        MemberJsonWriter writer = new MemberJsonWriter(frame);
+        writer.writeMember(member);
+        writer.flush();
+        frame.write("\n\n".getBytes(UTF_8));
+        return frame.toByteArray();
+    }
+
+    /**
+     * A <code>dropped</code> event, telling a client how many events it missed because it read them
+     * too slowly. The client should reload the member list to catch up.
+     */
+    static byte[] droppedFrame(long count) {
+        return ("event: dropped\ndata: " + count + "\n\n").getBytes(UTF_8);
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        DaemonThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+import javax.servlet.AsyncContext;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Streams newly registered members to dashboards as server-sent events, so they don't need to poll
+ * <code>GET /rest/members</code> to notice registrations.
+ * <p/>
+ * Each registration is sent as a <code>member</code> event whose data is the member as JSON. A client
+ * that reads too slowly to keep up receives a <code>dropped</code> event with the number of events it
+ * missed, or is disconnected, see {@link MemberEventBroadcaster}. A comment is sent every few seconds
+ * while nothing happens, to keep the connection open through proxies.
+ * <p/>
+ * The request is suspended for as long as the client stays connected, without holding a container
+ * thread. The path is more specific than the JAX-RS mapping, so this servlet takes precedence for it.
+ */
+@SuppressWarnings("serial")
+@WebServlet(value = "/rest/members/events", asyncSupported = true)
+public class MemberEventServlet extends HttpServlet {
+
+    @Inject
+    private MemberEventBroadcaster broadcaster;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!broadcaster.isAcceptingSubscribers()) {
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        resp.setContentType("text/event-stream");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        // Send the headers now, so that the client knows the stream is open
+        resp.flushBuffer();
+
+        AsyncContext asyncContext = req.startAsync();
+        // Stay suspended until the client disconnects
+        asyncContext.setTimeout(0);
+        broadcaster.subscribe(asyncContext);
+    }
+}
@@ -0,0 +1,204 @@
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+
+/**
+ * One client of the member event stream, with the bounded ring buffer of events waiting to be
+ * written to it.
+ * <p/>
+ * Events are added by the fan-out thread of the {@link MemberEventBroadcaster} and written out by its
+ * pool of writer threads, one drain at a time per subscriber, so a client that reads slowly only ever
+ * holds up its own events. When the buffer is full the subscriber either drops its oldest event, and
+ * tells the client how many it missed with a <code>dropped</code> event, or is disconnected, depending
+ * on the overflow policy. A write that blocks for longer than the write timeout, because the client
+ * stopped reading, disconnects the client too, see {@link #closeIfStalled(long, long)}.
+ */
+class MemberEventSubscriber implements Runnable, AsyncListener {
+
+    private final MemberEventBroadcaster broadcaster;
+
+    private final AsyncContext asyncContext;
+
+    private final Executor writers;
+
+    private final boolean disconnectOnOverflow;
+
+    // The ring buffer and the state below are guarded by this
+    private final byte[][] ring;
+
+    private int head;
+
+    private int size;
+
+    private long dropped;
+
+    private boolean overflowed;
+
+    private boolean draining;
+
+    private boolean closed;
+
+    // When the write in progress started, 0 when not writing
+    private volatile long writeStartedAt;
+
+    MemberEventSubscriber(MemberEventBroadcaster broadcaster, AsyncContext asyncContext, Executor writers,
+            int bufferSize, boolean disconnectOnOverflow) {
+        this.broadcaster = broadcaster;
+        this.asyncContext = asyncContext;
+        this.writers = writers;
+        this.disconnectOnOverflow = disconnectOnOverflow;
+        this.ring = new byte[bufferSize][];
+    }
+
+    /**
+     * Queues an event frame, and schedules a drain unless one is already scheduled or running.
+     * 
+     * @param idleOnly only queue the frame if nothing is waiting, as for keep-alive frames
+     */
+    void offer(byte[] frame, boolean idleOnly) {
+        synchronized (this) {
+            if (closed || (idleOnly && size > 0)) {
+                return;
+            }
+            if (size < ring.length) {
+                ring[(head + size) % ring.length] = frame;
+                size++;
+            } else if (disconnectOnOverflow) {
+                overflowed = true;
+            } else {
+                // Overwrite the oldest event
+                ring[head] = frame;
+                head = (head + 1) % ring.length;
+                dropped++;
+            }
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        try {
+            writers.execute(this);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            close();
+        }
+    }
+
+    /**
+     * Writes out the queued frames until there are none left.
+     */
+    public void run() {
+        boolean disconnect;
+        while (true) {
+            byte[][] frames;
+            long missed;
+            synchronized (this) {
+                if (closed || overflowed || (size == 0 && dropped == 0)) {
+                    draining = false;
+                    disconnect = overflowed;
+                    break;
+                }
+                frames = new byte[size][];
+                for (int i = 0; i < size; i++) {
+                    frames[i] = ring[(head + i) % ring.length];
+                    ring[(head + i) % ring.length] = null;
+                }
+                head = 0;
+                size = 0;
+                missed = dropped;
+                dropped = 0;
+            }
+            if (!write(frames, missed)) {
+                close();
+                return;
+            }
+        }
+        if (disconnect) {
+            // The client fell too far behind, under the disconnect policy
+            close();
+        }
+    }
+
+    /**
+     * @return whether the frames were written, <code>false</code> if the client has gone away
+     */
+    private boolean write(byte[][] frames, long missed) {
+        writeStartedAt = System.currentTimeMillis();
+        try {
+            OutputStream out = asyncContext.getResponse().getOutputStream();
+            if (missed > 0) {
+                out.write(MemberEventBroadcaster.droppedFrame(missed));
+            }
+            for (byte[] frame : frames) {
+                out.write(frame);
+            }
+            out.flush();
+            return true;
+        } catch (IOException e) {
+            return false;
+        } catch (IllegalStateException e) {
+            // The request has already completed
+            return false;
+        } finally {
+            writeStartedAt = 0;
+        }
+    }
+
+    /**
+     * Disconnects the client if a write to it has been blocked for longer than the timeout, which
+     * completes the request and fails the blocked write, freeing its writer thread. Called
+     * periodically by the fan-out thread of the {@link MemberEventBroadcaster}.
+     */
+    void closeIfStalled(long now, long writeTimeoutMillis) {
+        long startedAt = writeStartedAt;
+        if (startedAt != 0 && now - startedAt > writeTimeoutMillis) {
+            close();
+        }
+    }
+
+    /**
+     * Stops sending events and ends the response. Safe to call more than once, from any thread.
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            head = 0;
+            size = 0;
+            Arrays.fill(ring, null);
+        }
+        broadcaster.unsubscribe(this);
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            // Already completed, by the container or the client
+        }
+    }
+
+    // The subscription ends with the request, whatever the reason
+
+    public void onComplete(AsyncEvent event) {
+        close();
+    }
+
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    public void onStartAsync(AsyncEvent event) {
+    }
+}
@@ -0,0 +1,57 @@
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.util.Map;
+
+/**
+ * The outcome of importing one element of the array posted to <code>/members/bulk</code>.
+ */
+public class MemberImportResult {
+
+    public static final String CREATED = "created";
+
+    public static final String INVALID = "invalid";
+
+    public static final String DUPLICATE = "duplicate";
+
+    public static final String FAILED = "failed";
+
+    private final int index;
+
+    private final String status;
+
+    private final Long id;
+
+    private final Map<String, String> errors;
+
+    public MemberImportResult(int index, String status, Long id, Map<String, String> errors) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.errors = errors;
+    }
+
+    /**
+     * @return the position of the member in the posted array
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the id of the registered member, or <code>null</code> if it was not registered
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return the errors by field, or <code>null</code> if the member was registered
+     */
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,42 @@
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+
+/**
+ * Reads a JSON array of members one element at a time using the Jackson streaming API, so that
+ * arbitrarily large arrays can be processed without holding the whole document in memory.
+ */
+public class MemberJsonReader {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonParser parser;
+
+    public MemberJsonReader(InputStream in) throws IOException {
+        parser = MAPPER.getJsonFactory().createJsonParser(in);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException("Expected a JSON array of members", parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * @return the next member of the array, or <code>null</code> once the end of the array is reached
+     */
+    public Member readMember() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException("Expected a member object", parser.getCurrentLocation());
+        }
+        return MAPPER.readValue(parser, Member.class);
+    }
+}
@@ -0,0 +1,73 @@
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+
+/**
+ * Writes members as JSON using the Jackson streaming API.
+ * <p/>
+ * Each member is written straight to the underlying stream as soon as it is passed in, so no
+ * intermediate tree or string of the whole document is ever built. The field names match the ones
+ * produced by the JAX-RS JSON provider for a single {@link Member}.
+ */
+public class MemberJsonWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonGenerator generator;
+
+    public MemberJsonWriter(OutputStream out) throws IOException {
+        generator = JSON_FACTORY.createJsonGenerator(out, JsonEncoding.UTF8);
+        // The container owns the response stream, leave closing it to the container
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    public void writeStartArray() throws IOException {
+        generator.writeStartArray();
+    }
+
+    public void writeEndArray() throws IOException {
+        generator.writeEndArray();
+    }
+
+    public void writeMember(Member member) throws IOException {
+        generator.writeStartObject();
+        if (member.getId() == null) {
+            generator.writeNullField("id");
+        } else {
+            generator.writeNumberField("id", member.getId());
+        }
+        generator.writeStringField("name", member.getName());
+        generator.writeStringField("email", member.getEmail());
+        generator.writeStringField("phoneNumber", member.getPhoneNumber());
+        if (member.getVersion() == null) {
+            generator.writeNullField("version");
+        } else {
+            generator.writeNumberField("version", member.getVersion());
+        }
+        generator.writeEndObject();
+    }
+
+    public void writeMemberSummary(MemberSummary summary) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", summary.getId());
+        generator.writeStringField("name", summary.getName());
+        generator.writeStringField("email", summary.getEmail());
+        generator.writeStringField("phoneNumber", summary.getPhoneNumber());
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes out anything still buffered by the generator. Must be called once the document is
+     * complete.
+     */
+    public void flush() throws IOException {
+        generator.flush();
+    }
+}
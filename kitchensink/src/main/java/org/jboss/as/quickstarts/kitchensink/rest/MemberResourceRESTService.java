@@ -1,46 +1,93 @@
 package org.jboss.as.quickstarts.kitchensink.rest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
-import javax.persistence.NoResultException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
-import javax.validation.Validator;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
 
+import org.codehaus.jackson.JsonProcessingException;
 import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
 import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+import org.jboss.as.quickstarts.kitchensink.service.BulkMemberValidator;
 import org.jboss.as.quickstarts.kitchensink.service.MemberRegistration;
+import org.jboss.as.quickstarts.kitchensink.service.MemberValidator;
+import org.jboss.as.quickstarts.kitchensink.util.LatencyRecorder;
+import org.jboss.as.quickstarts.kitchensink.util.Metered;
+import org.jboss.as.quickstarts.kitchensink.util.MetricsRegistry;
+import org.jboss.resteasy.annotations.Suspend;
+import org.jboss.resteasy.spi.AsynchronousResponse;
 
 /**
  * JAX-RS Example
  * <p/>
  * This class produces a RESTful service to read/write the contents of the members table.
+ * <p/>
+ * The synchronous endpoints are {@link Metered}. The asynchronous ones return as soon as their work is
+ * submitted, so they are timed by {@link AsyncRequestExecutor} instead, until the request is resumed.
  */
 @Path("/members")
 @RequestScoped
 public class MemberResourceRESTService {
+    /**
+     * Number of members read from the database at a time when streaming the whole list.
+     */
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    /**
+     * Largest page a client may ask for with the <code>limit</code> query parameter.
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Number of members validated and registered together, in one transaction, by a bulk import.
+     */
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
+    /**
+     * Longest time, in milliseconds, an asynchronous request stays suspended. The configurable timeout of
+     * {@link AsyncRequestExecutor} normally answers the request well before.
+     */
+    private static final long SUSPEND_TIMEOUT = 60000;
+
     @Inject
     private Logger log;
 
     @Inject
-    private Validator validator;
+    private MemberValidator validator;
 
     @Inject
     private MemberRepository repository;
@@ -48,21 +95,106 @@ public class MemberResourceRESTService {
     @Inject
     MemberRegistration registration;
 
+    @Inject
+    private BulkMemberValidator bulkValidator;
+
+    @Inject
+    private AsyncRequestExecutor asyncExecutor;
+
+    @Inject
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * Lists members ordered by name. The JSON array is streamed to the client as it is read.
+     * <p/>
+     * Without a <code>limit</code> every member is returned, read from the database one keyset page at a
+     * time so that memory use stays flat however large the table grows. With a <code>limit</code> a
+     * single page is returned, and a <code>Link</code> header with <code>rel="next"</code> points at the
+     * following page when there may be one. In both cases the listing starts right after the member
+     * identified by <code>afterName</code> and <code>afterId</code>, when given.
+     * <p/>
+     * The response carries an entity tag, and a request whose <code>If-None-Match</code> header matches it
+     * gets a 304 without the list being serialized. For the whole list the tag is derived from a stamp of the
+     * member table computed by the database, for a page from the ids and versions of its members.
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Metered
+    public Response listAllMembers(@QueryParam("afterName") String afterName, @QueryParam("afterId") Long afterId,
+            @QueryParam("limit") Integer limit, @Context UriInfo uriInfo, @Context Request request) {
+        // A cursor is only meaningful as a (name, id) pair
+        if ((afterName == null) != (afterId == null)) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+        if (limit == null) {
+            EntityTag tag = new EntityTag(repository.findListStamp());
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null) {
+                return notModified.tag(tag).cacheControl(revalidate()).build();
+            }
+            return Response.ok(streamAllMembers(afterName, afterId)).tag(tag).cacheControl(revalidate()).build();
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+
+        List<Member> page = repository.findPageOrderedByName(afterName, afterId, limit);
+        EntityTag tag = pageTag(page);
+        Response.ResponseBuilder builder = request.evaluatePreconditions(tag);
+        if (builder == null) {
+            builder = Response.ok(streamMembers(page));
+        }
+        builder.tag(tag).cacheControl(revalidate());
+        if (page.size() == limit) {
+            Member last = page.get(page.size() - 1);
+            URI next = uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam("afterName", last.getName())
+                    .replaceQueryParam("afterId", last.getId())
+                    .build();
+            builder.header("Link", "<" + next + ">; rel=\"next\"");
+        }
+        return builder.build();
+    }
+
+    /**
+     * Lists a summary of every member, ordered by name, with only the fields shown in member tables. The
+     * summaries are read by a projection query that bypasses the persistence context, one keyset page at
+     * a time, and streamed to the client as a JSON array. Like the full list, the response carries an
+     * entity tag derived from the stamp of the member table.
+     */
     @GET
+    @Path("/summary")
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Member> listAllMembers() {
-        return repository.findAllOrderedByName();
+    @Metered
+    public Response listMemberSummaries(@Context Request request) {
+        EntityTag tag = new EntityTag(repository.findListStamp());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.tag(tag).cacheControl(revalidate()).build();
+        }
+        return Response.ok(streamAllSummaries()).tag(tag).cacheControl(revalidate()).build();
     }
 
+    /**
+     * Looks a member up by id. The response carries an entity tag made of the id and version of the member,
+     * and a request whose <code>If-None-Match</code> header matches it gets a 304 without the member being
+     * serialized.
+     */
     @GET
     @Path("/{id:[0-9][0-9]*}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Member lookupMemberById(@PathParam("id") long id) {
+    @Metered
+    public Response lookupMemberById(@PathParam("id") long id, @Context Request request) {
         Member member = repository.findById(id);
         if (member == null) {
             throw new WebApplicationException(Response.Status.NOT_FOUND);
         }
-        return member;
+        EntityTag tag = new EntityTag(member.getId() + "-" + member.getVersion());
+        Response.ResponseBuilder builder = request.evaluatePreconditions(tag);
+        if (builder == null) {
+            builder = Response.ok(member);
+        }
+        return builder.tag(tag).cacheControl(revalidate()).build();
     }
 
     /**
@@ -72,6 +204,7 @@ public class MemberResourceRESTService {
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
+    @Metered
     public Response createMember(Member member) {
 
         Response.ResponseBuilder builder = null;
@@ -80,6 +213,9 @@ public class MemberResourceRESTService {
             //Validates member using bean validation
             validateMember(member);
 
+            // The version is maintained by the persistence provider, never taken from the client
+            member.setVersion(null);
+
             registration.register(member);
 
             //Create an "ok" response
@@ -102,32 +238,273 @@ public class MemberResourceRESTService {
         return builder.build();
     }
 
+    /**
+     * Asynchronous variant of {@link #listAllMembers}. The request is suspended and the list is read and
+     * written out on the pool of {@link AsyncRequestExecutor}, leaving the container thread free.
+     * <p/>
+     * The asynchronous variants only use application scoped beans and the stateless registration EJB, so
+     * they don't depend on the request context being active on the thread that does the work.
+     */
+    @GET
+    @Path("/async")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void listAllMembersAsync(@QueryParam("afterName") final String afterName,
+            @QueryParam("afterId") final Long afterId, @QueryParam("limit") final Integer limit,
+            @Context final UriInfo uriInfo, @Context final Request request,
+            @Suspend(SUSPEND_TIMEOUT) AsynchronousResponse response) {
+        asyncExecutor.submit(response, new Callable<Response>() {
+            public Response call() {
+                return listAllMembers(afterName, afterId, limit, uriInfo, request);
+            }
+        }, asyncRecorder("listAllMembersAsync"));
+    }
+
+    /**
+     * Asynchronous variant of {@link #lookupMemberById}.
+     */
+    @GET
+    @Path("/async/{id:[0-9][0-9]*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void lookupMemberByIdAsync(@PathParam("id") final long id, @Context final Request request,
+            @Suspend(SUSPEND_TIMEOUT) AsynchronousResponse response) {
+        asyncExecutor.submit(response, new Callable<Response>() {
+            public Response call() {
+                return lookupMemberById(id, request);
+            }
+        }, asyncRecorder("lookupMemberByIdAsync"));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createMember}.
+     */
+    @POST
+    @Path("/async")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void createMemberAsync(final Member member, @Suspend(SUSPEND_TIMEOUT) AsynchronousResponse response) {
+        asyncExecutor.submit(response, new Callable<Response>() {
+            public Response call() {
+                return createMember(member);
+            }
+        }, asyncRecorder("createMemberAsync"));
+    }
+
+    private LatencyRecorder asyncRecorder(String methodName) {
+        return metricsRegistry.getRecorder(MemberResourceRESTService.class, methodName);
+    }
+
+    /**
+     * Registers members in bulk from a JSON array streamed in the request body, and returns the outcome of
+     * each element of the array.
+     * <p/>
+     * The array is read, validated and registered in chunks, each chunk in its own transaction, so the
+     * request never holds more than one chunk of members. If the body turns out to be malformed part way
+     * through, the chunks already registered are kept and a 400 response reports where reading stopped.
+     */
+    @POST
+    @Path("/bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Metered
+    public Response importMembers(InputStream body) {
+        List<MemberImportResult> results = new ArrayList<MemberImportResult>();
+        List<Member> chunk = new ArrayList<Member>(IMPORT_CHUNK_SIZE);
+        try {
+            MemberJsonReader reader = new MemberJsonReader(body);
+            Member member;
+            while ((member = reader.readMember()) != null) {
+                // Ids and versions are generated, never taken from the client
+                member.setId(null);
+                member.setVersion(null);
+                chunk.add(member);
+                if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                    importChunk(chunk, results);
+                    chunk.clear();
+                }
+            }
+            importChunk(chunk, results);
+        } catch (JsonProcessingException e) {
+            Map<String, String> responseObj = new HashMap<String, String>();
+            responseObj.put("error", "Malformed member at index " + (results.size() + chunk.size()) + ": "
+                    + e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(responseObj).build();
+        } catch (IOException e) {
+            throw new WebApplicationException(e);
+        }
+        return Response.ok(results).build();
+    }
+
+    /**
+     * Validates a chunk of members in parallel, registers the valid ones in a single transaction and
+     * appends the outcome for each member to the results.
+     */
+    private void importChunk(List<Member> chunk, List<MemberImportResult> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Set<ConstraintViolation<Member>>> violations = bulkValidator.validate(chunk);
+        List<Member> validMembers = new ArrayList<Member>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (violations.get(i).isEmpty()) {
+                validMembers.add(chunk.get(i));
+            }
+        }
+
+        Exception failure = null;
+        try {
+            registration.registerAll(validMembers);
+        } catch (Exception e) {
+            log.warning("Failed to register a chunk of " + validMembers.size() + " members: " + e);
+            failure = e;
+        }
+
+        int firstIndex = results.size();
+        for (int i = 0; i < chunk.size(); i++) {
+            Member member = chunk.get(i);
+            if (!violations.get(i).isEmpty()) {
+                results.add(new MemberImportResult(firstIndex + i, MemberImportResult.INVALID, null,
+                        toErrorMap(violations.get(i))));
+            } else if (failure != null) {
+                results.add(new MemberImportResult(firstIndex + i, MemberImportResult.FAILED, null,
+                        Collections.singletonMap("error", String.valueOf(failure.getMessage()))));
+            } else if (member.getId() != null) {
+                results.add(new MemberImportResult(firstIndex + i, MemberImportResult.CREATED, member.getId(), null));
+            } else {
+                results.add(new MemberImportResult(firstIndex + i, MemberImportResult.DUPLICATE, null,
+                        Collections.singletonMap("email", "Email taken")));
+            }
+        }
+    }
 
     /**
      * <p>Validates the given Member variable and throws validation exceptions based on the type of error.
      * If the error is standard bean validation errors then it will throw a ConstraintValidationException
      * with the set of the constraints violated.</p>
-     * <p>If the error is caused because an existing member with the same email is registered it throws a regular
-     * validation exception so that it can be interpreted separately.</p>
+     * <p>The uniqueness of the email is not checked here. It is enforced by the database when the member is
+     * registered, and reported as a DuplicateEmailException, a regular validation exception, so that it can
+     * be interpreted separately.</p>
      *
      * @param member Member to be validated
      * @throws ConstraintViolationException If Bean Validation errors exist
-     * @throws ValidationException          If member with the same email already exists
      */
-    private void validateMember(Member member) throws ConstraintViolationException, ValidationException {
-        //Create a bean validator and check for issues.
+    private void validateMember(Member member) throws ConstraintViolationException {
+        //Validate the member, without Bean Validation when it is certainly valid
         Set<ConstraintViolation<Member>> violations = validator.validate(member);
 
         if (!violations.isEmpty()) {
             throw new ConstraintViolationException(new HashSet<ConstraintViolation<?>>(violations));
         }
+    }
 
-        //Check the uniqueness of the email address
-        if (emailAlreadyExists(member.getEmail())) {
-            throw new ValidationException("Unique Email Violation");
+    /**
+     * Derives a strong entity tag from the ids and versions of the members of a page, which together
+     * identify the content of the page.
+     */
+    private static EntityTag pageTag(List<Member> page) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            for (Member member : page) {
+                digest.update((member.getId() + ":" + member.getVersion() + ",").getBytes("UTF-8"));
+            }
+            StringBuilder tag = new StringBuilder();
+            for (byte b : digest.digest()) {
+                tag.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return new EntityTag(tag.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
         }
     }
 
+    /**
+     * Lets clients, but not shared caches, keep member representations, on the condition that they
+     * revalidate them with their entity tag before every use.
+     */
+    private static CacheControl revalidate() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setPrivate(true);
+        cacheControl.setMaxAge(0);
+        cacheControl.setMustRevalidate(true);
+        return cacheControl;
+    }
+
+    /**
+     * Streams an already loaded page of members as a JSON array.
+     */
+    private StreamingOutput streamMembers(final List<Member> members) {
+        return new StreamingOutput() {
+            public void write(OutputStream output) throws IOException {
+                MemberJsonWriter writer = new MemberJsonWriter(output);
+                writer.writeStartArray();
+                for (Member member : members) {
+                    writer.writeMember(member);
+                }
+                writer.writeEndArray();
+                writer.flush();
+            }
+        };
+    }
+
+    /**
+     * Streams every member after the given cursor as a JSON array, fetching the next keyset page only
+     * once the previous one has been written out. Only one page is ever held in memory.
+     */
+    private StreamingOutput streamAllMembers(final String afterName, final Long afterId) {
+        return new StreamingOutput() {
+            public void write(OutputStream output) throws IOException {
+                MemberJsonWriter writer = new MemberJsonWriter(output);
+                writer.writeStartArray();
+                String lastName = afterName;
+                Long lastId = afterId;
+                List<Member> page;
+                do {
+                    page = repository.findPageOrderedByName(lastName, lastId, STREAM_PAGE_SIZE);
+                    for (Member member : page) {
+                        writer.writeMember(member);
+                    }
+                    if (!page.isEmpty()) {
+                        Member last = page.get(page.size() - 1);
+                        lastName = last.getName();
+                        lastId = last.getId();
+                    }
+                } while (page.size() == STREAM_PAGE_SIZE);
+                writer.writeEndArray();
+                writer.flush();
+            }
+        };
+    }
+
+    /**
+     * Streams the summary of every member as a JSON array, fetching the next keyset page only once the
+     * previous one has been written out.
+     */
+    private StreamingOutput streamAllSummaries() {
+        return new StreamingOutput() {
+            public void write(OutputStream output) throws IOException {
+                MemberJsonWriter writer = new MemberJsonWriter(output);
+                writer.writeStartArray();
+                String lastName = null;
+                Long lastId = null;
+                List<MemberSummary> page;
+                do {
+                    page = repository.findSummaryPageOrderedByName(lastName, lastId, STREAM_PAGE_SIZE);
+                    for (MemberSummary summary : page) {
+                        writer.writeMemberSummary(summary);
+                    }
+                    if (!page.isEmpty()) {
+                        MemberSummary last = page.get(page.size() - 1);
+                        lastName = last.getName();
+                        lastId = last.getId();
+                    }
+                } while (page.size() == STREAM_PAGE_SIZE);
+                writer.writeEndArray();
+                writer.flush();
+            }
+        };
+    }
+
     /**
      * Creates a JAX-RS "Bad Request" response including a map of all violation fields, and their message.
      * This can then be used by clients to show violations.
@@ -138,29 +515,20 @@ public class MemberResourceRESTService {
     private Response.ResponseBuilder createViolationResponse(Set<ConstraintViolation<?>> violations) {
         log.fine("Validation completed. violations found: " + violations.size());
 
-        Map<String, String> responseObj = new HashMap<String, String>();
-
-        for (ConstraintViolation<?> violation : violations) {
-            responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
-        }
-
-        return Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+        return Response.status(Response.Status.BAD_REQUEST).entity(toErrorMap(violations));
     }
 
     /**
-     * Checks if a member with the same email address is already registered.  This is the only way to
-     * easily capture the "@UniqueConstraint(columnNames = "email")" constraint from the Member class.
-     *
-     * @param email The email to check
-     * @return True if the email already exists, and false otherwise
+     * Maps each violated field to its violation message.
      */
-    public boolean emailAlreadyExists(String email) {
-        Member member = null;
-        try {
-            member = repository.findByEmail(email);
-        } catch (NoResultException e) {
-            // ignore
+    private Map<String, String> toErrorMap(Set<? extends ConstraintViolation<?>> violations) {
+        Map<String, String> errors = new HashMap<String, String>();
+
+        for (ConstraintViolation<?> violation : violations) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
         }
-        return member != null;
+
+        return errors;
     }
+
 }
@@ -0,0 +1,88 @@
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.util.Map;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+import org.jboss.as.quickstarts.kitchensink.data.MemberCache;
+import org.jboss.as.quickstarts.kitchensink.util.LatencyRecorder;
+import org.jboss.as.quickstarts.kitchensink.util.MetricsRegistry;
+
+/**
+ * Exposes the metrics recorded for {@link org.jboss.as.quickstarts.kitchensink.util.Metered} methods,
+ * and those of the member cache, in the plain text format scraped by Prometheus.
+ * <p/>
+ * Each method is reported as a summary of its latencies, with the 50th, 90th, 99th and 99.9th
+ * percentiles, the total time spent and the number of calls, along with its maximum latency and its
+ * number of failures. Throughput is the rate of change of the call count between two scrapes.
+ */
+@Path("/metrics")
+@RequestScoped
+public class MetricsResourceRESTService {
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    @Inject
+    private MetricsRegistry registry;
+
+    @Inject
+    private MemberCache memberCache;
+
+    @GET
+    @Produces("text/plain; version=0.0.4")
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        Map<String, LatencyRecorder> recorders = registry.getRecorders();
+
+        out.append("# HELP kitchensink_method_duration_seconds Latency of the calls to a method.\n");
+        out.append("# TYPE kitchensink_method_duration_seconds summary\n");
+        for (LatencyRecorder recorder : recorders.values()) {
+            String labels = labels(recorder);
+            for (double quantile : QUANTILES) {
+                sample(out, "kitchensink_method_duration_seconds", labels + ",quantile=\"" + quantile + "\"",
+                        recorder.getQuantileMicros(quantile) / 1e6);
+            }
+            sample(out, "kitchensink_method_duration_seconds_sum", labels, recorder.getTotalNanos() / 1e9);
+            sample(out, "kitchensink_method_duration_seconds_count", labels, recorder.getCount());
+        }
+
+        out.append("# HELP kitchensink_method_duration_seconds_max Longest call to a method.\n");
+        out.append("# TYPE kitchensink_method_duration_seconds_max gauge\n");
+        for (LatencyRecorder recorder : recorders.values()) {
+            sample(out, "kitchensink_method_duration_seconds_max", labels(recorder), recorder.getMaxNanos() / 1e9);
+        }
+
+        out.append("# HELP kitchensink_method_failures_total Calls to a method that threw an exception.\n");
+        out.append("# TYPE kitchensink_method_failures_total counter\n");
+        for (LatencyRecorder recorder : recorders.values()) {
+            sample(out, "kitchensink_method_failures_total", labels(recorder), recorder.getFailureCount());
+        }
+
+        out.append("# HELP kitchensink_member_cache_hits_total Member lookups answered by the cache.\n");
+        out.append("# TYPE kitchensink_member_cache_hits_total counter\n");
+        sample(out, "kitchensink_member_cache_hits_total", null, memberCache.getHitCount());
+        out.append("# HELP kitchensink_member_cache_misses_total Member lookups the cache couldn't answer.\n");
+        out.append("# TYPE kitchensink_member_cache_misses_total counter\n");
+        sample(out, "kitchensink_member_cache_misses_total", null, memberCache.getMissCount());
+        out.append("# HELP kitchensink_member_cache_size Members held by the cache.\n");
+        out.append("# TYPE kitchensink_member_cache_size gauge\n");
+        sample(out, "kitchensink_member_cache_size", null, memberCache.getSize());
+        return out.toString();
+    }
+
+    private static String labels(LatencyRecorder recorder) {
+        return "bean=\"" + recorder.getBeanName() + "\",method=\"" + recorder.getMethodName() + "\"";
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, Object value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+}
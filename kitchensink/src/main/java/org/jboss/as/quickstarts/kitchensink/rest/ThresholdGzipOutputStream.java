@@ -0,0 +1,165 @@
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * Holds back the start of a response until it is known to be larger than a threshold, and only then
+ * gzips it. A response that ends below the threshold is written as is, as compressing it would save
+ * less than it costs.
+ * <p/>
+ * The <code>Content-Encoding</code> header is only added once the response is known to be compressed.
+ * The headers are sent with the first bytes written to the underlying stream, which always comes
+ * after. All the buffers, and the deflater, come from a {@link Buffers} instance that is reused
+ * across responses, so a response allocates no buffer of its own, and the buffers never grow.
+ * <p/>
+ * The gzip format is written by hand, rather than with {@link java.util.zip.GZIPOutputStream}, which
+ * allocates a new deflater and new buffers for every stream.
+ */
+class ThresholdGzipOutputStream extends OutputStream {
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final OutputStream out;
+
+    private final MultivaluedMap<String, Object> headers;
+
+    private final Buffers buffers;
+
+    private int pending;
+
+    private boolean compressing;
+
+    private boolean finished;
+
+    ThresholdGzipOutputStream(OutputStream out, MultivaluedMap<String, Object> headers, Buffers buffers) {
+        this.out = out;
+        this.headers = headers;
+        this.buffers = buffers;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        buffers.single[0] = (byte) b;
+        write(buffers.single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Stream already finished");
+        }
+        if (!compressing) {
+            if (pending + len <= buffers.threshold.length) {
+                System.arraycopy(b, off, buffers.threshold, pending, len);
+                pending += len;
+                return;
+            }
+            startCompressing();
+        }
+        deflate(b, off, len);
+    }
+
+    /**
+     * Passes on what has been compressed so far. Until the threshold is crossed nothing is passed on,
+     * as it isn't known yet whether the response will be compressed.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (compressing) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes out the end of the response, compressed or not, without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (!compressing) {
+            out.write(buffers.threshold, 0, pending);
+            return;
+        }
+        Deflater deflater = buffers.deflater;
+        deflater.finish();
+        while (!deflater.finished()) {
+            writeDeflated();
+        }
+        // The trailer holds the CRC and the size, modulo 2^32, of the uncompressed data
+        writeIntLE((int) buffers.crc.getValue());
+        writeIntLE((int) deflater.getBytesRead());
+    }
+
+    private void startCompressing() throws IOException {
+        compressing = true;
+        headers.putSingle("Content-Encoding", "gzip");
+        out.write(GZIP_HEADER);
+        deflate(buffers.threshold, 0, pending);
+        pending = 0;
+    }
+
+    private void deflate(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        buffers.crc.update(b, off, len);
+        Deflater deflater = buffers.deflater;
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            writeDeflated();
+        }
+    }
+
+    private void writeDeflated() throws IOException {
+        int count = buffers.deflater.deflate(buffers.deflated, 0, buffers.deflated.length);
+        if (count > 0) {
+            out.write(buffers.deflated, 0, count);
+        }
+    }
+
+    private void writeIntLE(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+    /**
+     * The buffers and deflater of one response, pre-sized once and reset between responses.
+     */
+    static class Buffers {
+
+        final byte[] threshold;
+
+        final byte[] deflated;
+
+        final byte[] single = new byte[1];
+
+        final Deflater deflater;
+
+        final CRC32 crc = new CRC32();
+
+        Buffers(int thresholdSize, int deflatedSize, int level) {
+            threshold = new byte[thresholdSize];
+            deflated = new byte[deflatedSize];
+            // Raw deflate, the gzip header and trailer are written by the stream
+            deflater = new Deflater(level, true);
+        }
+
+        void reset() {
+            deflater.reset();
+            crc.reset();
+        }
+
+        void release() {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.jboss.as.quickstarts.kitchensink.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.validation.ConstraintViolation;
+import javax.validation.ValidationException;
+
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+
+/**
+ * Validates large lists of members with Bean Validation, spreading the work over one thread per
+ * available processor. The {@link MemberValidator} is thread safe, so a single one is shared by all
+ * the threads.
+ */
+@ApplicationScoped
+public class BulkMemberValidator {
+
+   @Inject
+   private MemberValidator validator;
+
+   private int parallelism;
+
+   private ExecutorService executor;
+
+   @PostConstruct
+   public void start() {
+      parallelism = Runtime.getRuntime().availableProcessors();
+      executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+         private final AtomicInteger count = new AtomicInteger();
+
+         public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "member-validation-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+   }
+
+   @PreDestroy
+   public void stop() {
+      executor.shutdownNow();
+   }
+
+   /**
+    * @return the constraint violations of each member, in the same order as the members
+    */
+   public List<Set<ConstraintViolation<Member>>> validate(List<Member> members) {
+      int sliceSize = Math.max(1, (members.size() + parallelism - 1) / parallelism);
+      List<Future<List<Set<ConstraintViolation<Member>>>>> slices = new ArrayList<Future<List<Set<ConstraintViolation<Member>>>>>();
+      for (int from = 0; from < members.size(); from += sliceSize) {
+         final List<Member> slice = members.subList(from, Math.min(from + sliceSize, members.size()));
+         slices.add(executor.submit(new Callable<List<Set<ConstraintViolation<Member>>>>() {
+            public List<Set<ConstraintViolation<Member>>> call() {
+               List<Set<ConstraintViolation<Member>>> violations = new ArrayList<Set<ConstraintViolation<Member>>>(slice.size());
+               for (Member member : slice) {
+                  violations.add(validator.validate(member));
+               }
+               return violations;
+            }
+         }));
+      }
+
+      List<Set<ConstraintViolation<Member>>> violations = new ArrayList<Set<ConstraintViolation<Member>>>(members.size());
+      try {
+         for (Future<List<Set<ConstraintViolation<Member>>>> slice : slices) {
+            violations.addAll(slice.get());
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new ValidationException("Interrupted while validating members", e);
+      } catch (ExecutionException e) {
+         throw new ValidationException("Failed to validate members", e.getCause());
+      }
+      return violations;
+   }
+}
@@ -0,0 +1,23 @@
+package org.jboss.as.quickstarts.kitchensink.service;
+
+import javax.ejb.ApplicationException;
+import javax.validation.ValidationException;
+
+/**
+ * Thrown when a member can't be registered because another member already uses the same email,
+ * as enforced by the <code>@UniqueConstraint(columnNames = "email")</code> on the member table.
+ *
+ * <p>
+ * As an application exception it reaches the caller as is, rather than wrapped in an
+ * EJBException, and the registering transaction is rolled back.
+ * </p>
+ */
+@ApplicationException(rollback = true)
+public class DuplicateEmailException extends ValidationException {
+   /** Default value included to remove warning. Remove or modify at will. **/
+   private static final long serialVersionUID = 1L;
+
+   public DuplicateEmailException(String email, Throwable cause) {
+      super("Unique Email Violation: " + email, cause);
+   }
+}
@@ -1,29 +1,125 @@
 package org.jboss.as.quickstarts.kitchensink.service;
 
+import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
 import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.RegisteredMembers;
+import org.jboss.as.quickstarts.kitchensink.util.Metered;
 
 import javax.ejb.Stateless;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.logging.Logger;
 
 // The @Stateless annotation eliminates the need for manual transaction demarcation
 @Stateless
+@Metered
 public class MemberRegistration {
 
+   /**
+    * Number of inserts between flushes in {@link #registerAll(List)}; keep in step with
+    * hibernate.jdbc.batch_size in persistence.xml so each flush sends one JDBC batch.
+    */
+   private static final int BATCH_SIZE = 50;
+
    @Inject
    private Logger log;
 
    @Inject
    private EntityManager em;
 
+   @Inject
+   private MemberRepository repository;
+
    @Inject
    private Event<Member> memberEventSrc;
 
+   @Inject
+   private Event<RegisteredMembers> registeredMembersEventSrc;
+
+   /**
+    * Registers a member in a single round-trip. The uniqueness of the email is not checked up front,
+    * the insert is flushed straight away and the database's unique constraint rejects a duplicate,
+    * which also closes the window between checking and inserting in which a concurrent registration
+    * could slip in.
+    * 
+    * @throws DuplicateEmailException if another member already uses the member's email
+    */
    public void register(Member member) throws Exception {
       log.info("Registering " + member.getName());
-      em.persist(member);
+      try {
+         em.persist(member);
+         em.flush();
+      } catch (PersistenceException e) {
+         if (isConstraintViolation(e)) {
+            throw new DuplicateEmailException(member.getEmail(), e);
+         }
+         throw e;
+      }
       memberEventSrc.fire(member);
    }
+
+   /**
+    * Registers the given, already validated, members in a single transaction. Emails that are
+    * already registered are looked up with one query for the whole list, and members using them, or
+    * repeating an email seen earlier in the list, are skipped. The others are inserted in JDBC
+    * batches, clearing the persistence context after each batch so it doesn't grow with the list.
+    * 
+    * <p>
+    * Registered members are given an id, skipped members are left without one. A single
+    * {@link RegisteredMembers} event is fired for all the registered members, rather than one event
+    * each.
+    * </p>
+    */
+   public void registerAll(List<Member> members) throws Exception {
+      Set<String> emails = new HashSet<String>();
+      for (Member member : members) {
+         emails.add(member.getEmail());
+      }
+      Set<String> takenEmails = new HashSet<String>(repository.findRegisteredEmails(emails));
+
+      List<Member> registered = new ArrayList<Member>(members.size());
+      for (Member member : members) {
+         if (!takenEmails.add(member.getEmail())) {
+            continue;
+         }
+         em.persist(member);
+         registered.add(member);
+         if (registered.size() % BATCH_SIZE == 0) {
+            em.flush();
+            em.clear();
+         }
+      }
+      if (!registered.isEmpty()) {
+         registeredMembersEventSrc.fire(new RegisteredMembers(registered));
+      }
+      log.info("Registered " + registered.size() + " of " + members.size() + " members");
+   }
+
+   /**
+    * Looks for an SQLException behind a persistence failure whose SQL state is in the integrity
+    * constraint violation class (23), the only such constraint on the member table being the
+    * uniqueness of the email. Batched inserts report the failing statement as the next exception of
+    * a BatchUpdateException, so those are followed too.
+    */
+   private static boolean isConstraintViolation(PersistenceException e) {
+      for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+         if (cause instanceof SQLException) {
+            for (SQLException sqlException = (SQLException) cause; sqlException != null; sqlException = sqlException
+                  .getNextException()) {
+               String sqlState = sqlException.getSQLState();
+               if (sqlState != null && sqlState.startsWith("23")) {
+                  return true;
+               }
+            }
+         }
+      }
+      return false;
+   }
 }
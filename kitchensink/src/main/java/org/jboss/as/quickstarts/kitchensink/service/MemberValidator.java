@@ -0,0 +1,174 @@
+package org.jboss.as.quickstarts.kitchensink.service;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.constraints.Digits;
+import javax.validation.constraints.Size;
+import javax.validation.metadata.BeanDescriptor;
+import javax.validation.metadata.ConstraintDescriptor;
+import javax.validation.metadata.PropertyDescriptor;
+
+import org.hibernate.validator.constraints.Email;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+
+/**
+ * Validates members with Bean Validation, behind a fast path for the common case of a valid member.
+ * 
+ * <p>
+ * The fast path checks the constraints declared on {@link Member} with plain code and a precompiled
+ * pattern, and only ever accepts a member: a member it isn't sure about, because it is invalid or
+ * merely unusual, goes through {@link Validator#validate} as before, so the violations reported are
+ * always those of Bean Validation. The email check accepts a subset of the addresses accepted by
+ * {@link Email}.
+ * </p>
+ * 
+ * <p>
+ * The fast path is only used if the constraints declared on {@link Member}, as read from the Bean
+ * Validation metadata at startup, are exactly those it implements. If they are changed without
+ * updating this class, every member is validated by Bean Validation.
+ * </p>
+ */
+@ApplicationScoped
+public class MemberValidator {
+
+   /**
+    * The constraints implemented by the fast path, by property, as described by
+    * {@link #describe(ConstraintDescriptor)}.
+    */
+   private static final Map<String, Set<String>> FAST_PATH_CONSTRAINTS = new HashMap<String, Set<String>>();
+
+   static {
+      FAST_PATH_CONSTRAINTS.put("name", constraints("NotNull", "Size(1,25)", "Pattern([A-Za-z ]*)"));
+      FAST_PATH_CONSTRAINTS.put("email", constraints("NotNull", "NotEmpty", "Email"));
+      FAST_PATH_CONSTRAINTS.put("phoneNumber", constraints("NotNull", "Size(10,12)", "Digits(12,0)"));
+   }
+
+   /**
+    * Dot separated atoms of letters, digits and a few common symbols on both sides of the @, a strict
+    * subset of what {@link Email} accepts.
+    */
+   private static final Pattern SIMPLE_EMAIL = Pattern
+         .compile("[A-Za-z0-9_%+-]+(\\.[A-Za-z0-9_%+-]+)*@[A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)*");
+
+   /**
+    * Longer addresses are left to Bean Validation, in case its email check also bounds the length.
+    */
+   private static final int MAX_SIMPLE_EMAIL_LENGTH = 254;
+
+   @Inject
+   private Logger log;
+
+   @Inject
+   private Validator validator;
+
+   private boolean fastPathEnabled;
+
+   @PostConstruct
+   public void checkConstraints() {
+      Map<String, Set<String>> declared = new HashMap<String, Set<String>>();
+      BeanDescriptor bean = validator.getConstraintsForClass(Member.class);
+      for (PropertyDescriptor property : bean.getConstrainedProperties()) {
+         Set<String> constraints = new TreeSet<String>();
+         for (ConstraintDescriptor<?> constraint : property.getConstraintDescriptors()) {
+            constraints.add(describe(constraint));
+         }
+         declared.put(property.getPropertyName(), constraints);
+      }
+      fastPathEnabled = bean.getConstraintDescriptors().isEmpty() && declared.equals(FAST_PATH_CONSTRAINTS);
+      if (!fastPathEnabled) {
+         log.warning("The constraints of Member have changed, members are validated by Bean Validation only: "
+               + declared);
+      }
+   }
+
+   public boolean isFastPathEnabled() {
+      return fastPathEnabled;
+   }
+
+   /**
+    * @return the constraint violations of the member, an empty set if it is valid
+    */
+   public Set<ConstraintViolation<Member>> validate(Member member) {
+      if (fastPathEnabled && isCertainlyValid(member)) {
+         return Collections.emptySet();
+      }
+      return validator.validate(member);
+   }
+
+   private static boolean isCertainlyValid(Member member) {
+      return isName(member.getName()) && isSimpleEmail(member.getEmail()) && isPhoneNumber(member.getPhoneNumber());
+   }
+
+   private static boolean isName(String name) {
+      if (name == null || name.length() < 1 || name.length() > 25) {
+         return false;
+      }
+      for (int i = 0; i < name.length(); i++) {
+         char c = name.charAt(i);
+         if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == ' ')) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static boolean isSimpleEmail(String email) {
+      return email != null && email.length() > 0 && email.length() <= MAX_SIMPLE_EMAIL_LENGTH
+            && SIMPLE_EMAIL.matcher(email).matches();
+   }
+
+   private static boolean isPhoneNumber(String phoneNumber) {
+      if (phoneNumber == null || phoneNumber.length() < 10 || phoneNumber.length() > 12) {
+         return false;
+      }
+      // Up to 12 plain digits always satisfy @Digits(integer = 12, fraction = 0)
+      for (int i = 0; i < phoneNumber.length(); i++) {
+         char c = phoneNumber.charAt(i);
+         if (c < '0' || c > '9') {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Describes a constraint by its type and the attributes that the fast path relies on.
+    */
+   private static String describe(ConstraintDescriptor<?> constraint) {
+      Class<? extends Annotation> type = constraint.getAnnotation().annotationType();
+      Map<String, Object> attributes = constraint.getAttributes();
+      if (type == Size.class) {
+         return "Size(" + attributes.get("min") + "," + attributes.get("max") + ")";
+      }
+      if (type == Digits.class) {
+         return "Digits(" + attributes.get("integer") + "," + attributes.get("fraction") + ")";
+      }
+      if (type == javax.validation.constraints.Pattern.class) {
+         Object[] flags = (Object[]) attributes.get("flags");
+         return "Pattern(" + attributes.get("regexp") + (flags.length == 0 ? "" : "," + Arrays.toString(flags)) + ")";
+      }
+      if (type == Email.class) {
+         // Later versions of @Email take an additional pattern, which only restricts it further
+         Object regexp = attributes.get("regexp");
+         return regexp == null || ".*".equals(regexp) ? "Email" : "Email(" + regexp + ")";
+      }
+      return type.getSimpleName();
+   }
+
+   private static Set<String> constraints(String... descriptions) {
+      return new TreeSet<String>(Arrays.asList(descriptions));
+   }
+}
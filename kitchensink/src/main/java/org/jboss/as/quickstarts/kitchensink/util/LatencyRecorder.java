@@ -0,0 +1,137 @@
+package org.jboss.as.quickstarts.kitchensink.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the latencies of the calls to one method in a histogram, along with the number of calls
+ * and failures, without ever taking a lock.
+ * 
+ * <p>
+ * Like an HDR histogram, the buckets are linear within each power of two: latencies are recorded in
+ * microseconds, exactly below {@value #SUB_BUCKET_COUNT} &micro;s and with a relative error of at
+ * most 1 / {@value #SUB_BUCKET_COUNT} above, so percentiles keep the same precision from
+ * microseconds to hours with a fixed number of buckets. Each bucket is an atomic counter, so
+ * concurrent calls never wait on each other.
+ * </p>
+ */
+public class LatencyRecorder {
+
+   private static final int SUB_BUCKET_BITS = 5;
+
+   private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+   /**
+    * Latencies are tracked up to 2^40 &micro;s, about 12 days; longer ones land in the last bucket.
+    */
+   private static final int MAX_EXPONENT = 40;
+
+   private static final long MAX_TRACKED_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+   private static final int BUCKET_COUNT = SUB_BUCKET_COUNT * (MAX_EXPONENT - SUB_BUCKET_BITS + 2);
+
+   private final String beanName;
+
+   private final String methodName;
+
+   private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+   private final AtomicLong count = new AtomicLong();
+
+   private final AtomicLong failures = new AtomicLong();
+
+   private final AtomicLong totalNanos = new AtomicLong();
+
+   private final AtomicLong maxNanos = new AtomicLong();
+
+   public LatencyRecorder(String beanName, String methodName) {
+      this.beanName = beanName;
+      this.methodName = methodName;
+   }
+
+   public String getBeanName() {
+      return beanName;
+   }
+
+   public String getMethodName() {
+      return methodName;
+   }
+
+   public void record(long nanos, boolean failed) {
+      buckets.incrementAndGet(bucketOf(Math.min(nanos / 1000, MAX_TRACKED_MICROS)));
+      count.incrementAndGet();
+      if (failed) {
+         failures.incrementAndGet();
+      }
+      totalNanos.addAndGet(nanos);
+      long max = maxNanos.get();
+      while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+         max = maxNanos.get();
+      }
+   }
+
+   public long getCount() {
+      return count.get();
+   }
+
+   public long getFailureCount() {
+      return failures.get();
+   }
+
+   public long getTotalNanos() {
+      return totalNanos.get();
+   }
+
+   public long getMaxNanos() {
+      return maxNanos.get();
+   }
+
+   /**
+    * Returns the latency below which the given fraction of the calls completed, as the highest
+    * latency of the bucket the percentile falls in. The buckets are read one by one while calls may
+    * still be recorded, so the result is approximate under load.
+    * 
+    * @param quantile between 0 and 1, e.g. 0.99 for the 99th percentile
+    * @return the latency in microseconds, or 0 if no call has been recorded
+    */
+   public long getQuantileMicros(double quantile) {
+      long[] counts = new long[BUCKET_COUNT];
+      long total = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+         counts[i] = buckets.get(i);
+         total += counts[i];
+      }
+      if (total == 0) {
+         return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(quantile * total));
+      long seen = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+         seen += counts[i];
+         if (seen >= rank) {
+            return highestValueOf(i);
+         }
+      }
+      return MAX_TRACKED_MICROS;
+   }
+
+   private static int bucketOf(long micros) {
+      if (micros < SUB_BUCKET_COUNT) {
+         return (int) micros;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(micros);
+      int shift = exponent - SUB_BUCKET_BITS;
+      // The top SUB_BUCKET_BITS bits below the leading one pick the bucket within the power of two
+      int subBucket = (int) (micros >>> shift) - SUB_BUCKET_COUNT;
+      return SUB_BUCKET_COUNT * (shift + 1) + subBucket;
+   }
+
+   private static long highestValueOf(int bucket) {
+      if (bucket < SUB_BUCKET_COUNT) {
+         return bucket;
+      }
+      int shift = bucket / SUB_BUCKET_COUNT - 1;
+      long subBucket = bucket % SUB_BUCKET_COUNT;
+      return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+   }
+}
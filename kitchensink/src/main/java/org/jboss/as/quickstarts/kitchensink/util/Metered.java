@@ -0,0 +1,26 @@
+package org.jboss.as.quickstarts.kitchensink.util;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import javax.interceptor.InterceptorBinding;
+
+/**
+ * Records the latency, the number of calls and the number of failures of the annotated methods, or
+ * of every business method of the annotated bean, in the {@link MetricsRegistry}.
+ * 
+ * <p>
+ * The {@link MetricsInterceptor} is enabled in WEB-INF/beans.xml.
+ * </p>
+ */
+@Inherited
+@InterceptorBinding
+@Retention(RUNTIME)
+@Target({ METHOD, TYPE })
+public @interface Metered {
+}
@@ -0,0 +1,36 @@
+package org.jboss.as.quickstarts.kitchensink.util;
+
+import java.io.Serializable;
+
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+/**
+ * Times every call to a {@link Metered} method and records it in the {@link MetricsRegistry}. A call
+ * that throws an exception, including an application exception, counts as a failure.
+ */
+@Metered
+@Interceptor
+public class MetricsInterceptor implements Serializable {
+   /** Default value included to remove warning. Remove or modify at will. **/
+   private static final long serialVersionUID = 1L;
+
+   @Inject
+   private MetricsRegistry registry;
+
+   @AroundInvoke
+   public Object record(InvocationContext ctx) throws Exception {
+      LatencyRecorder recorder = registry.getRecorder(ctx.getMethod());
+      long start = System.nanoTime();
+      boolean failed = true;
+      try {
+         Object result = ctx.proceed();
+         failed = false;
+         return result;
+      } finally {
+         recorder.record(System.nanoTime() - start, failed);
+      }
+   }
+}
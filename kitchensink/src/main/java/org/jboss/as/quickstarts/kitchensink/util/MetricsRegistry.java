@@ -0,0 +1,65 @@
+package org.jboss.as.quickstarts.kitchensink.util;
+
+import java.lang.reflect.Method;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Holds one {@link LatencyRecorder} per {@link Metered} method, created the first time the method is
+ * called. Overloads of a method share its recorder.
+ */
+@ApplicationScoped
+public class MetricsRegistry {
+
+   private final ConcurrentMap<Method, LatencyRecorder> recordersByMethod = new ConcurrentHashMap<Method, LatencyRecorder>();
+
+   // Guarded by this
+   private final SortedMap<String, LatencyRecorder> recordersByName = new TreeMap<String, LatencyRecorder>();
+
+   /**
+    * @return the recorder of the given method, looked up without locking once the method has been
+    *         called
+    */
+   public LatencyRecorder getRecorder(Method method) {
+      LatencyRecorder recorder = recordersByMethod.get(method);
+      return recorder != null ? recorder : createRecorder(method);
+   }
+
+   /**
+    * @return the recorder of the named method, for work that is timed outside of the
+    *         {@link MetricsInterceptor}
+    */
+   public synchronized LatencyRecorder getRecorder(Class<?> beanClass, String methodName) {
+      return recorderNamed(beanClass.getSimpleName(), methodName);
+   }
+
+   /**
+    * @return the recorder of every method called so far, by bean and method name
+    */
+   public synchronized SortedMap<String, LatencyRecorder> getRecorders() {
+      return new TreeMap<String, LatencyRecorder>(recordersByName);
+   }
+
+   private synchronized LatencyRecorder createRecorder(Method method) {
+      LatencyRecorder recorder = recordersByMethod.get(method);
+      if (recorder == null) {
+         recorder = recorderNamed(method.getDeclaringClass().getSimpleName(), method.getName());
+         recordersByMethod.put(method, recorder);
+      }
+      return recorder;
+   }
+
+   private LatencyRecorder recorderNamed(String beanName, String methodName) {
+      String name = beanName + "." + methodName;
+      LatencyRecorder recorder = recordersByName.get(name);
+      if (recorder == null) {
+         recorder = new LatencyRecorder(beanName, methodName);
+         recordersByName.put(name, recorder);
+      }
+      return recorder;
+   }
+}
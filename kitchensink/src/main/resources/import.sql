@@ -1,2 +1,4 @@
 -- You can use this file to load seed data into the database using SQL statements
-insert into Member (id, name, email, phone_number) values (0, 'John Smith', 'john.smith@mailinator.com', '2125551212') 
\ No newline at end of file
+insert into Member (id, name, email, phone_number, version) values (0, 'John Smith', 'john.smith@mailinator.com', '2125551212', 0) 
+-- Backs the keyset pagination of the member list, which seeks and orders by (name, id)
+create index member_name_id_idx on Member (name, id)
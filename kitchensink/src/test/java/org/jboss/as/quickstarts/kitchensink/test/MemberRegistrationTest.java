@@ -1,14 +1,21 @@
 package org.jboss.as.quickstarts.kitchensink.test;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 import javax.inject.Inject;
 
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.as.quickstarts.kitchensink.data.MemberCache;
+import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
 import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+import org.jboss.as.quickstarts.kitchensink.model.RegisteredMembers;
+import org.jboss.as.quickstarts.kitchensink.service.DuplicateEmailException;
 import org.jboss.as.quickstarts.kitchensink.service.MemberRegistration;
 import org.jboss.as.quickstarts.kitchensink.util.Resources;
 import org.jboss.shrinkwrap.api.Archive;
@@ -23,7 +30,8 @@ public class MemberRegistrationTest {
    @Deployment
    public static Archive<?> createTestArchive() {
       return ShrinkWrap.create(WebArchive.class, "test.war")
-            .addClasses(Member.class, MemberRegistration.class, Resources.class)
+            .addClasses(Member.class, MemberSummary.class, RegisteredMembers.class, MemberRegistration.class,
+                  DuplicateEmailException.class, MemberRepository.class, MemberCache.class, Resources.class)
             .addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
             .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml")
             // Deploy our test datasource
@@ -46,5 +54,30 @@ public class MemberRegistrationTest {
       assertNotNull(newMember.getId());
       log.info(newMember.getName() + " was persisted with id " + newMember.getId());
    }
+
+   @Test(expected = DuplicateEmailException.class)
+   public void testRegisterDuplicateEmail() throws Exception {
+      memberRegistration.register(createMember("Jack Doe", "jack@mailinator.com"));
+      memberRegistration.register(createMember("Jack Dupe", "jack@mailinator.com"));
+   }
+
+   @Test
+   public void testRegisterAllSkipsTakenEmails() throws Exception {
+      Member first = createMember("Jim Doe", "jim@mailinator.com");
+      Member duplicate = createMember("Jim Dupe", "jim@mailinator.com");
+      Member second = createMember("Joan Doe", "joan@mailinator.com");
+      memberRegistration.registerAll(Arrays.asList(first, duplicate, second));
+      assertNotNull(first.getId());
+      assertNull(duplicate.getId());
+      assertNotNull(second.getId());
+   }
+
+   private Member createMember(String name, String email) {
+      Member member = new Member();
+      member.setName(name);
+      member.setEmail(email);
+      member.setPhoneNumber("2125551234");
+      return member;
+   }
    
 }
@@ -0,0 +1,114 @@
+package org.jboss.as.quickstarts.tasks.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.jboss.as.quickstarts.tasks.Task;
+import org.jboss.as.quickstarts.tasks.TaskDao;
+import org.jboss.as.quickstarts.tasks.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the two ways of importing a task list for a user and clearing it again:
+ * <ul>
+ * <li><code>oneByOne</code> calls <code>TaskDao.createTask</code> and then
+ * <code>TaskDao.deleteTask</code> for every task</li>
+ * <li><code>inBulk</code> calls <code>TaskDao.createTasks</code>, which batches the inserts, and then
+ * <code>TaskDao.deleteAllTasks</code>, which deletes them in a single statement</li>
+ * </ul>
+ * Each import and each clearing runs in its own transaction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BulkTaskBenchmark {
+
+    /**
+     * Number of tasks imported and cleared.
+     */
+    @Param({ "100", "1000" })
+    public int taskCount;
+
+    private EntityManagerFactory emf;
+
+    private EntityManager em;
+
+    private TaskDao taskDao;
+
+    private User user;
+
+    @Setup(Level.Trial)
+    public void createDatabase() {
+        emf = Tasks.createEntityManagerFactory();
+        em = emf.createEntityManager();
+        taskDao = Tasks.createTaskDao(em);
+        user = Tasks.createUser(em, "jdoe");
+        em.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public int oneByOne() {
+        List<Task> tasks = newTasks();
+        em.getTransaction().begin();
+        for (Task task : tasks) {
+            taskDao.createTask(user, task);
+        }
+        em.getTransaction().commit();
+        em.clear();
+
+        em.getTransaction().begin();
+        for (Task task : tasks) {
+            taskDao.deleteTask(task);
+        }
+        em.getTransaction().commit();
+        em.clear();
+        return tasks.size();
+    }
+
+    @Benchmark
+    public int inBulk() {
+        em.getTransaction().begin();
+        taskDao.createTasks(user, newTasks());
+        em.getTransaction().commit();
+        em.clear();
+
+        em.getTransaction().begin();
+        int deleted = taskDao.deleteAllTasks(user);
+        em.getTransaction().commit();
+        em.clear();
+        return deleted;
+    }
+
+    private List<Task> newTasks() {
+        List<Task> tasks = new ArrayList<Task>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            tasks.add(new Task("imported task " + i));
+        }
+        return tasks;
+    }
+}
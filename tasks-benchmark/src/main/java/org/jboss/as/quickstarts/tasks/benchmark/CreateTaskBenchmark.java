@@ -0,0 +1,95 @@
+package org.jboss.as.quickstarts.tasks.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.jboss.as.quickstarts.tasks.Task;
+import org.jboss.as.quickstarts.tasks.TaskDao;
+import org.jboss.as.quickstarts.tasks.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the two ways of creating a task for a detached user, who already owns many tasks:
+ * <ul>
+ * <li><code>addingToTasksOfUser</code> merges the user and adds the task to the tasks of the user,
+ * as <code>TaskDao.createTask</code> used to, which loads all of them</li>
+ * <li><code>settingOwnerOnly</code> calls <code>TaskDao.createTask</code>, which only sets the
+ * owner of the task</li>
+ * </ul>
+ * Each task is created in its own transaction, and the persistence context is cleared afterwards,
+ * like the container does at the end of each request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CreateTaskBenchmark {
+
+    /**
+     * Number of tasks the user owns before the run.
+     */
+    @Param({ "10", "1000", "100000" })
+    public int taskCount;
+
+    private EntityManagerFactory emf;
+
+    private EntityManager em;
+
+    private TaskDao taskDao;
+
+    private User user;
+
+    @Setup(Level.Trial)
+    public void createDatabase() {
+        emf = Tasks.createEntityManagerFactory();
+        em = emf.createEntityManager();
+        taskDao = Tasks.createTaskDao(em);
+        user = Tasks.createUser(em, "jdoe");
+        Tasks.insertTasks(em, user, Tasks.createUser(em, "emuster"), taskCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public Task addingToTasksOfUser() {
+        Task task = new Task("new task");
+        em.getTransaction().begin();
+        User managedUser = em.merge(user);
+        managedUser.getTasks().add(task);
+        task.setOwner(managedUser);
+        em.persist(task);
+        em.getTransaction().commit();
+        em.clear();
+        return task;
+    }
+
+    @Benchmark
+    public Task settingOwnerOnly() {
+        Task task = new Task("new task");
+        em.getTransaction().begin();
+        taskDao.createTask(user, task);
+        em.getTransaction().commit();
+        em.clear();
+        return task;
+    }
+}
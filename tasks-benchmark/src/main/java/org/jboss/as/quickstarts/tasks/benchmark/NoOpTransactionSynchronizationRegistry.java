@@ -0,0 +1,37 @@
+package org.jboss.as.quickstarts.tasks.benchmark;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Stands in for the JTA synchronization registry outside the container, where transactions are
+ * resource local. Synchronizations are dropped, the DAO already invalidates its cache straight away.
+ */
+public class NoOpTransactionSynchronizationRegistry implements TransactionSynchronizationRegistry {
+
+    public Object getTransactionKey() {
+        return null;
+    }
+
+    public void putResource(Object key, Object value) {
+    }
+
+    public Object getResource(Object key) {
+        return null;
+    }
+
+    public void registerInterposedSynchronization(Synchronization sync) {
+    }
+
+    public int getTransactionStatus() {
+        return Status.STATUS_NO_TRANSACTION;
+    }
+
+    public void setRollbackOnly() {
+    }
+
+    public boolean getRollbackOnly() {
+        return false;
+    }
+}
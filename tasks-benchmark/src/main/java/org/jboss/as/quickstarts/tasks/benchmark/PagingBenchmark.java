@@ -0,0 +1,101 @@
+package org.jboss.as.quickstarts.tasks.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.jboss.as.quickstarts.tasks.Task;
+import org.jboss.as.quickstarts.tasks.TaskDao;
+import org.jboss.as.quickstarts.tasks.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the two ways of reading one page of the tasks of a user with a long task list, at several
+ * depths into the list:
+ * <ul>
+ * <li><code>offsetPage</code> calls <code>TaskDao.getRange</code>, which skips the tasks before the
+ * page with <code>setFirstResult</code></li>
+ * <li><code>keysetPage</code> calls <code>TaskDao.getRangeAfter</code> with the id of the last task
+ * of the previous page</li>
+ * </ul>
+ * Another user owns as many tasks, interleaved with those of the user, so that the owner filter has
+ * work to do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PagingBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({ "1000000" })
+    public int taskCount;
+
+    /**
+     * Position of the first task of the page in the task list of the user.
+     */
+    @Param({ "0", "10000", "100000", "900000" })
+    public int pageStart;
+
+    private EntityManagerFactory emf;
+
+    private EntityManager em;
+
+    private TaskDao taskDao;
+
+    private User user;
+
+    private Long lastIdOfPreviousPage;
+
+    @Setup(Level.Trial)
+    public void createDatabase() {
+        emf = Tasks.createEntityManagerFactory();
+        em = emf.createEntityManager();
+        taskDao = Tasks.createTaskDao(em);
+        user = Tasks.createUser(em, "jdoe");
+        Tasks.insertTasks(em, user, Tasks.createUser(em, "emuster"), taskCount);
+
+        if (pageStart > 0) {
+            lastIdOfPreviousPage = em
+                    .createQuery("SELECT t.id FROM Task t WHERE t.owner = ? ORDER BY t.id", Long.class)
+                    .setParameter(1, user).setFirstResult(pageStart - 1).setMaxResults(1).getSingleResult();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public List<Task> offsetPage() {
+        List<Task> page = taskDao.getRange(user, pageStart, PAGE_SIZE);
+        em.clear();
+        return page;
+    }
+
+    @Benchmark
+    public List<Task> keysetPage() {
+        List<Task> page = taskDao.getRangeAfter(user, lastIdOfPreviousPage, PAGE_SIZE);
+        em.clear();
+        return page;
+    }
+}
@@ -0,0 +1,89 @@
+package org.jboss.as.quickstarts.tasks.benchmark;
+
+import java.lang.reflect.Field;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.jboss.as.quickstarts.tasks.TaskCache;
+import org.jboss.as.quickstarts.tasks.TaskDao;
+import org.jboss.as.quickstarts.tasks.TaskDaoImpl;
+import org.jboss.as.quickstarts.tasks.TaskTitleIndex;
+import org.jboss.as.quickstarts.tasks.User;
+
+/**
+ * Wires the tasks beans by hand, the way the container would, so that the benchmarks run the real
+ * DAO code against an embedded H2 database.
+ * <p/>
+ * Entity managers are not thread safe, so each benchmark thread should wire its own beans around its
+ * own entity manager.
+ */
+public final class Tasks {
+
+    private Tasks() {
+    }
+
+    /**
+     * Bootstraps Hibernate against a fresh in memory H2 database, see META-INF/persistence.xml.
+     */
+    public static EntityManagerFactory createEntityManagerFactory() {
+        return Persistence.createEntityManagerFactory("benchmark");
+    }
+
+    public static TaskDao createTaskDao(EntityManager em) {
+        TaskCache taskCache = new TaskCache();
+        taskCache.createCache();
+
+        TaskTitleIndex taskTitleIndex = new TaskTitleIndex();
+        inject(taskTitleIndex, "em", em);
+        taskTitleIndex.rebuild();
+
+        TaskDaoImpl taskDao = new TaskDaoImpl();
+        inject(taskDao, "em", em);
+        inject(taskDao, "taskCache", taskCache);
+        inject(taskDao, "taskTitleIndex", taskTitleIndex);
+        inject(taskDao, "transactionRegistry", new NoOpTransactionSynchronizationRegistry());
+        return taskDao;
+    }
+
+    /**
+     * Creates a user, in its own transaction.
+     */
+    public static User createUser(EntityManager em, String username) {
+        User user = new User(username);
+        em.getTransaction().begin();
+        em.persist(user);
+        em.getTransaction().commit();
+        return user;
+    }
+
+    /**
+     * Inserts <code>count</code> tasks for each of the users, interleaved so that the ids of the tasks
+     * of a user aren't contiguous, in a single statement rather than through the DAO, which would take
+     * minutes for millions of tasks.
+     */
+    public static void insertTasks(EntityManager em, User user, User otherUser, int count) {
+        em.getTransaction().begin();
+        em.createNativeQuery(
+                "INSERT INTO Task (OWNER_ID, TITLE) SELECT CASEWHEN(MOD(X, 2) = 0, CAST(? AS BIGINT), CAST(? AS BIGINT)),"
+                        + " 'task ' || X FROM SYSTEM_RANGE(1, ?)")
+                .setParameter(1, user.getId()).setParameter(2, otherUser.getId()).setParameter(3, 2L * count)
+                .executeUpdate();
+        em.getTransaction().commit();
+        em.clear();
+    }
+
+    /**
+     * Sets a private, normally injected, field.
+     */
+    public static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot inject " + target.getClass().getSimpleName() + "." + fieldName, e);
+        }
+    }
+}
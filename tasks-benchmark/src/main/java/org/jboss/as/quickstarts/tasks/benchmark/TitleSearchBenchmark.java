@@ -0,0 +1,89 @@
+package org.jboss.as.quickstarts.tasks.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.jboss.as.quickstarts.tasks.Task;
+import org.jboss.as.quickstarts.tasks.TaskDao;
+import org.jboss.as.quickstarts.tasks.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the two ways of searching the tasks of a user by a part of their title, ignoring case:
+ * <ul>
+ * <li><code>likeQuery</code> runs <code>LOWER(t.title) LIKE '%...%'</code>, as
+ * <code>TaskDao.getForTitle</code> used to, which reads every task of the user</li>
+ * <li><code>indexSearch</code> calls <code>TaskDao.getForTitle</code>, which looks the title up in
+ * the trigram index built from the table when the DAO is created</li>
+ * </ul>
+ * Another user owns as many tasks, interleaved with those of the user.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TitleSearchBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int taskCount;
+
+    /**
+     * Part of the title searched for, matching a handful of tasks of the user.
+     */
+    @Param({ "SK 424" })
+    public String titlePart;
+
+    private EntityManagerFactory emf;
+
+    private EntityManager em;
+
+    private TaskDao taskDao;
+
+    private User user;
+
+    @Setup(Level.Trial)
+    public void createDatabase() {
+        emf = Tasks.createEntityManagerFactory();
+        em = emf.createEntityManager();
+        user = Tasks.createUser(em, "jdoe");
+        Tasks.insertTasks(em, user, Tasks.createUser(em, "emuster"), taskCount);
+        taskDao = Tasks.createTaskDao(em);
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public List<Task> likeQuery() {
+        List<Task> tasks = em
+                .createQuery("SELECT t FROM Task t WHERE t.owner = ? AND LOWER(t.title) LIKE ?", Task.class)
+                .setParameter(1, user).setParameter(2, "%" + titlePart.toLowerCase() + "%").getResultList();
+        em.clear();
+        return tasks;
+    }
+
+    @Benchmark
+    public List<Task> indexSearch() {
+        return taskDao.getForTitle(user, titlePart);
+    }
+}
@@ -9,6 +9,9 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.ManyToOne;
 
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Table;
+
 /**
  * User's task entity
  *
@@ -16,6 +19,8 @@ import javax.persistence.ManyToOne;
  */
 @SuppressWarnings("serial")
 @Entity
+// Lets the database seek to the tasks of a user after a given task, in the order of their ids, see TaskDao.getRangeAfter
+@Table(appliesTo = "Task", indexes = @Index(name = "IDX_TASK_OWNER_ID", columnNames = { "owner_id", "id" }))
 public class Task implements Serializable {
 
     @Id
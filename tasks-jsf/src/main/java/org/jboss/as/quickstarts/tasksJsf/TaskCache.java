@@ -0,0 +1,151 @@
+package org.jboss.as.quickstarts.tasksJsf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Named;
+
+/**
+ * <p>
+ * Application-wide cache of the task lists of the most recently active users, keyed by user id, so that listing the tasks of a
+ * user doesn't need to query the database again until the user creates or deletes a task.
+ * </p>
+ *
+ * <p>
+ * At most <code>tasks.cache.maxUsers</code> lists (1000 by default) are kept, the list of the user least recently served is
+ * evicted first. The cached tasks are detached copies, never managed by any persistence context, so that requests can share
+ * them.
+ * </p>
+ *
+ * <p>
+ * The hit ratio and the other statistics of the cache are available from the Expression Language context, for example
+ * <code>#{taskCache.hitRatio}</code>.
+ * </p>
+ */
+@Named
+@ApplicationScoped
+public class TaskCache {
+
+    public static final String MAX_USERS_PROPERTY = "tasks.cache.maxUsers";
+
+    private static final int DEFAULT_MAX_USERS = 1000;
+
+    private Map<Long, List<Task>> tasksByUser;
+
+    /**
+     * Incremented by every invalidation, so that a list loaded while a task was being created or deleted isn't cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    public void createCache() {
+        final int maxUsers = Integer.getInteger(MAX_USERS_PROPERTY, DEFAULT_MAX_USERS);
+        tasksByUser = new LinkedHashMap<Long, List<Task>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, List<Task>> eldest) {
+                if (size() > maxUsers) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the cached tasks of the user, or null if they aren't cached
+     */
+    public List<Task> get(User user) {
+        List<Task> tasks;
+        synchronized (tasksByUser) {
+            tasks = tasksByUser.get(user.getId());
+        }
+        if (tasks == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return tasks;
+    }
+
+    /**
+     * @return the generation to pass to {@link #put(User, List, long)}, taken before loading the tasks
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Caches detached copies of the tasks of the user, unless the tasks of any user were invalidated since the given
+     * generation, in which case the tasks loaded may already be stale.
+     *
+     * @return the tasks cached, or the tasks given if they weren't cached
+     */
+    public List<Task> put(User user, List<Task> tasks, long loadedGeneration) {
+        User owner = new User(user.getUsername());
+        owner.setId(user.getId());
+        List<Task> copies = new ArrayList<Task>(tasks.size());
+        for (Task task : tasks) {
+            Task copy = new Task(task.getTitle());
+            copy.setId(task.getId());
+            copy.setOwner(owner);
+            copies.add(copy);
+        }
+        List<Task> cached = Collections.unmodifiableList(copies);
+        synchronized (tasksByUser) {
+            if (generation.get() != loadedGeneration) {
+                return tasks;
+            }
+            tasksByUser.put(user.getId(), cached);
+        }
+        return cached;
+    }
+
+    public void invalidate(User user) {
+        synchronized (tasksByUser) {
+            generation.incrementAndGet();
+            tasksByUser.remove(user.getId());
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the share of the lookups answered from the cache, 0 if there were none
+     */
+    public double getHitRatio() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    public int getSize() {
+        synchronized (tasksByUser) {
+            return tasksByUser.size();
+        }
+    }
+}
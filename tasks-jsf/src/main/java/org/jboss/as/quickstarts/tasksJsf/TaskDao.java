@@ -15,11 +15,41 @@ public interface TaskDao {
 
     void createTask(User user, Task task);
 
+    /**
+     * Creates the tasks for the user with batched inserts, rather than one insert per task. The tasks are not managed afterwards
+     * and their ids are not set.
+     */
+    void createTasks(User user, List<Task> tasks);
+
     List<Task> getAll(User user);
 
     List<Task> getRange(User user, int offset, int count);
 
+    /**
+     * Obtains at most <code>count</code> tasks of the user in the order of their ids, starting right after the task with the id
+     * <code>lastId</code>, or from the first task if it is null. Pass the id of the last task of a page to get the next page:
+     * unlike {@link #getRange(User, int, int)}, the database seeks straight to the page rather than skipping all the tasks before
+     * it, so deep pages cost no more than the first one.
+     */
+    List<Task> getRangeAfter(User user, Long lastId, int count);
+
     List<Task> getForTitle(User user, String title);
 
     void deleteTask(Task task);
+
+    /**
+     * Deletes the tasks of the user with the given ids with a single statement, without loading them. Tasks already loaded in
+     * the persistence context are not updated.
+     * 
+     * @return the number of tasks deleted
+     */
+    int deleteTasks(User user, List<Long> taskIds);
+
+    /**
+     * Deletes all the tasks of the user with a single statement, without loading them. Tasks already loaded in the persistence
+     * context are not updated.
+     * 
+     * @return the number of tasks deleted
+     */
+    int deleteAllTasks(User user);
 }
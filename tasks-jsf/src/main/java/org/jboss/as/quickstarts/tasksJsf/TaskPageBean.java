@@ -0,0 +1,75 @@
+package org.jboss.as.quickstarts.tasksJsf;
+
+import java.util.List;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+/**
+ * <p>
+ * One page of the tasks of current user, for browsing long task lists page by page.
+ * </p>
+ *
+ * <p>
+ * A page is addressed by the id of the last task of the previous page, passed in the <code>after</code> request parameter, rather
+ * than by its number, so that {@link TaskDao#getRangeAfter(User, Long, int)} can seek straight to it however deep it is.
+ * </p>
+ */
+@Named("taskPage")
+@RequestScoped
+public class TaskPageBean {
+
+    public static final int PAGE_SIZE = 20;
+
+    private Long after;
+
+    private List<Task> tasks;
+
+    private boolean hasNext;
+
+    @Inject
+    private TaskDao taskDao;
+
+    @Inject
+    @CurrentUser
+    private User currentUser;
+
+    public Long getAfter() {
+        return after;
+    }
+
+    public void setAfter(Long after) {
+        this.after = after;
+    }
+
+    /**
+     * Obtains the tasks of the page, at most once per request.
+     *
+     * @return the tasks of the page
+     */
+    public List<Task> getTasks() {
+        if (tasks == null) {
+            // One more task than shown tells whether there is a next page
+            tasks = taskDao.getRangeAfter(currentUser, after, PAGE_SIZE + 1);
+            hasNext = tasks.size() > PAGE_SIZE;
+            if (hasNext) {
+                tasks = tasks.subList(0, PAGE_SIZE);
+            }
+        }
+        return tasks;
+    }
+
+    public boolean isHasNext() {
+        getTasks();
+        return hasNext;
+    }
+
+    /**
+     * @return the value of the <code>after</code> parameter of the next page
+     */
+    public Long getNextAfter() {
+        List<Task> page = getTasks();
+        return page.isEmpty() ? after : page.get(page.size() - 1).getId();
+    }
+}
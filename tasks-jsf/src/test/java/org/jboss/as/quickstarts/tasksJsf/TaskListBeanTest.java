@@ -69,6 +69,10 @@ public class TaskListBeanTest {
         public void createTask(User user, Task task) {
         }
 
+        @Override
+        public void createTasks(User user, List<Task> tasks) {
+        }
+
         @Override
         public List<Task> getAll(User user) {
             getAllCallsCount += 1;
@@ -80,6 +84,11 @@ public class TaskListBeanTest {
             return null;
         }
 
+        @Override
+        public List<Task> getRangeAfter(User user, Long lastId, int count) {
+            return null;
+        }
+
         @Override
         public List<Task> getForTitle(User user, String title) {
             return null;
@@ -89,6 +98,16 @@ public class TaskListBeanTest {
         public void deleteTask(Task task) {
         }
 
+        @Override
+        public int deleteTasks(User user, List<Long> taskIds) {
+            return 0;
+        }
+
+        @Override
+        public int deleteAllTasks(User user) {
+            return 0;
+        }
+
         public int getGetAllCallsCount() {
             return getAllCallsCount;
         }
@@ -5,6 +5,9 @@ import static javax.persistence.GenerationType.IDENTITY;
 import javax.persistence.*;
 import java.io.Serializable;
 
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Table;
+
 /**
  * User's task entity
  * 
@@ -12,6 +15,8 @@ import java.io.Serializable;
  */
 @SuppressWarnings("serial")
 @Entity
+// Lets the database seek to the tasks of a user after a given task, in the order of their ids, see TaskDao.getRangeAfter
+@Table(appliesTo = "Task", indexes = @Index(name = "IDX_TASK_OWNER_ID", columnNames = { "owner_id", "id" }))
 public class Task implements Serializable {
 
     @Id
@@ -1,15 +1,35 @@
 package org.jboss.as.quickstarts.tasks;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import javax.annotation.Resource;
 import javax.ejb.Stateful;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
 
 /**
  * Provides functionality for manipulation with tasks using the persistence context from {@link Resources}.
  * 
+ * The task lists of users are cached by {@link TaskCache}, the list of a user is invalidated when a task of the user is created
+ * or deleted, and again once the transaction completes. Searches by title are answered by {@link TaskTitleIndex}, which is told
+ * about created and deleted tasks once the transaction commits.
+ * 
+ * Tasks created or deleted in bulk bypass the persistence context: inserts are sent in JDBC batches, since the identity ids of
+ * tasks keep Hibernate from batching them, and deletes are JPQL bulk statements.
+ * 
  * @author Lukas Fryc
  * @author Oliver Kiss
  * 
@@ -17,23 +37,113 @@ import javax.persistence.TypedQuery;
 @Stateful
 public class TaskDaoImpl implements TaskDao {
 
+    private static final int INSERT_BATCH_SIZE = 50;
+
     @Inject
     EntityManager em;
 
+    @Inject
+    TaskCache taskCache;
+
+    @Inject
+    TaskTitleIndex taskTitleIndex;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
     @Override
-    public void createTask(User user, Task task) {
-        if (!em.contains(user)) {
-            user = em.merge(user);
+    public void createTask(User user, final Task task) {
+        final User owner = attach(user);
+        // The task is owned through Task.owner, only add it to the tasks of the user if they are loaded anyway, loading them
+        // would make the cost of creating a task grow with the number of tasks of the user
+        if (em.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(owner, "tasks")) {
+            owner.getTasks().add(task);
         }
-        user.getTasks().add(task);
-        task.setOwner(user);
+        task.setOwner(owner);
         em.persist(task);
+        onTasksChanged(owner, new Runnable() {
+            @Override
+            public void run() {
+                taskTitleIndex.add(owner.getId(), task.getId(), task.getTitle());
+            }
+        });
+    }
+
+    @Override
+    public void createTasks(User user, final List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        final User owner = attach(user);
+        // Send pending changes, the owner among them, before the inserts
+        em.flush();
+        Long lastIdBefore = em.createQuery("SELECT MAX(t.id) FROM Task t WHERE t.owner = ?", Long.class).setParameter(1, owner)
+                .getSingleResult();
+
+        em.unwrap(Session.class).doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                PreparedStatement insert = connection.prepareStatement("INSERT INTO Task (owner_id, title) VALUES (?, ?)");
+                try {
+                    int batched = 0;
+                    for (Task task : tasks) {
+                        task.setOwner(owner);
+                        insert.setLong(1, owner.getId());
+                        insert.setString(2, task.getTitle());
+                        insert.addBatch();
+                        if (++batched % INSERT_BATCH_SIZE == 0) {
+                            insert.executeBatch();
+                        }
+                    }
+                    if (batched % INSERT_BATCH_SIZE != 0) {
+                        insert.executeBatch();
+                    }
+                } finally {
+                    insert.close();
+                }
+            }
+        });
+
+        // Batched inserts don't report the generated ids, read them back for the title index
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createQuery("SELECT t.id, t.title FROM Task t WHERE t.owner = ? AND t.id > ?")
+                .setParameter(1, owner).setParameter(2, lastIdBefore == null ? 0L : lastIdBefore).getResultList();
+        final Map<Long, String> titles = new LinkedHashMap<Long, String>();
+        for (Object[] row : rows) {
+            titles.put((Long) row[0], (String) row[1]);
+        }
+        onTasksChanged(owner, new Runnable() {
+            @Override
+            public void run() {
+                for (Map.Entry<Long, String> entry : titles.entrySet()) {
+                    taskTitleIndex.add(owner.getId(), entry.getKey(), entry.getValue());
+                }
+            }
+        });
+    }
+
+    /**
+     * Obtains the user as managed by the persistence context, without loading it if it is already stored.
+     */
+    private User attach(User user) {
+        if (em.contains(user)) {
+            return user;
+        }
+        return user.getId() == null ? em.merge(user) : em.getReference(User.class, user.getId());
     }
 
     @Override
     public List<Task> getAll(User user) {
-        TypedQuery<Task> query = querySelectAllTasksFromUser(user);
-        return query.getResultList();
+        if (user.getId() == null) {
+            return querySelectAllTasksFromUser(user).getResultList();
+        }
+        List<Task> tasks = taskCache.get(user);
+        if (tasks == null) {
+            long generation = taskCache.getGeneration();
+            TypedQuery<Task> query = querySelectAllTasksFromUser(user);
+            tasks = taskCache.put(user, query.getResultList(), generation);
+        }
+        return tasks;
     }
 
     @Override
@@ -44,8 +154,38 @@ public class TaskDaoImpl implements TaskDao {
         return query.getResultList();
     }
 
+    @Override
+    public List<Task> getRangeAfter(User user, Long lastId, int count) {
+        // Ordered by owner too, so that the page is read straight off the index on the owner and id of tasks, without a sort
+        TypedQuery<Task> query;
+        if (lastId == null) {
+            query = em.createQuery("SELECT t FROM Task t WHERE t.owner = ? ORDER BY t.owner.id, t.id", Task.class)
+                    .setParameter(1, user);
+        } else {
+            query = em.createQuery("SELECT t FROM Task t WHERE t.owner = ? AND t.id > ? ORDER BY t.owner.id, t.id", Task.class)
+                    .setParameter(1, user).setParameter(2, lastId);
+        }
+        query.setMaxResults(count);
+        return query.getResultList();
+    }
+
     @Override
     public List<Task> getForTitle(User user, String title) {
+        if (user.getId() == null) {
+            return queryForTitle(user, title);
+        }
+        Map<Long, String> titles = taskTitleIndex.search(user.getId(), title);
+        List<Task> tasks = new ArrayList<Task>(titles.size());
+        for (Map.Entry<Long, String> entry : titles.entrySet()) {
+            Task task = new Task(entry.getValue());
+            task.setId(entry.getKey());
+            task.setOwner(user);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private List<Task> queryForTitle(User user, String title) {
         String lowerCaseTitle = "%" + title.toLowerCase() + "%";
         return em.createQuery("SELECT t FROM Task t WHERE t.owner = ? AND LOWER(t.title) LIKE ?", Task.class)
                 .setParameter(1, user).setParameter(2, lowerCaseTitle).getResultList();
@@ -57,6 +197,70 @@ public class TaskDaoImpl implements TaskDao {
             task = em.merge(task);
         }
         em.remove(task);
+        final Task deleted = task;
+        onTasksChanged(deleted.getOwner(), new Runnable() {
+            @Override
+            public void run() {
+                taskTitleIndex.remove(deleted.getOwner().getId(), deleted.getId());
+            }
+        });
+    }
+
+    @Override
+    public int deleteTasks(User user, final List<Long> taskIds) {
+        if (taskIds.isEmpty()) {
+            return 0;
+        }
+        final User owner = attach(user);
+        // Send pending changes before the bulk statement, which bypasses the persistence context
+        em.flush();
+        int deleted = em.createQuery("DELETE FROM Task t WHERE t.owner = :owner AND t.id IN (:ids)")
+                .setParameter("owner", owner).setParameter("ids", taskIds).executeUpdate();
+        onTasksChanged(owner, new Runnable() {
+            @Override
+            public void run() {
+                for (Long taskId : taskIds) {
+                    taskTitleIndex.remove(owner.getId(), taskId);
+                }
+            }
+        });
+        return deleted;
+    }
+
+    @Override
+    public int deleteAllTasks(User user) {
+        final User owner = attach(user);
+        em.flush();
+        int deleted = em.createQuery("DELETE FROM Task t WHERE t.owner = :owner").setParameter("owner", owner).executeUpdate();
+        onTasksChanged(owner, new Runnable() {
+            @Override
+            public void run() {
+                taskTitleIndex.removeAll(owner.getId());
+            }
+        });
+        return deleted;
+    }
+
+    /**
+     * Invalidates the cached tasks of the user straight away, so that this transaction sees its own changes, and again once it
+     * completes, in case another transaction cached the list it read in the meantime. Once the transaction commits, applies the
+     * changes to the title index.
+     */
+    private void onTasksChanged(final User user, final Runnable titleIndexUpdate) {
+        taskCache.invalidate(user);
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                taskCache.invalidate(user);
+                if (status == Status.STATUS_COMMITTED) {
+                    titleIndexUpdate.run();
+                }
+            }
+        });
     }
 
     private TypedQuery<Task> querySelectAllTasksFromUser(User user) {
@@ -0,0 +1,187 @@
+package org.jboss.as.quickstarts.tasks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * <p>
+ * In-memory, case-insensitive, substring index of the titles of the tasks of each user, so that searching the tasks of a user by
+ * title doesn't scan them in the database.
+ * </p>
+ *
+ * <p>
+ * The lower-cased title of each task is split into its trigrams, the three-letter sequences it contains, and each trigram maps to
+ * the tasks whose titles contain it. A search only checks the tasks that contain every trigram of the searched text. The index is
+ * built from the table when the application starts, and kept up to date by {@link TaskDaoImpl} as tasks are created and
+ * deleted.
+ * </p>
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class TaskTitleIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    @PersistenceContext
+    EntityManager em;
+
+    private final ConcurrentMap<Long, OwnerIndex> owners = new ConcurrentHashMap<Long, OwnerIndex>();
+
+    @PostConstruct
+    public void rebuild() {
+        owners.clear();
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createQuery("SELECT t.id, t.owner.id, t.title FROM Task t").getResultList();
+        for (Object[] row : rows) {
+            add((Long) row[1], (Long) row[0], (String) row[2]);
+        }
+    }
+
+    public void add(Long ownerId, Long taskId, String title) {
+        OwnerIndex index = owners.get(ownerId);
+        if (index == null) {
+            OwnerIndex created = new OwnerIndex();
+            index = owners.putIfAbsent(ownerId, created);
+            if (index == null) {
+                index = created;
+            }
+        }
+        index.add(taskId, title == null ? "" : title);
+    }
+
+    public void remove(Long ownerId, Long taskId) {
+        OwnerIndex index = owners.get(ownerId);
+        if (index != null) {
+            index.remove(taskId);
+        }
+    }
+
+    public void removeAll(Long ownerId) {
+        owners.remove(ownerId);
+    }
+
+    /**
+     * @return the titles of the tasks of the owner that contain the text, ignoring case, by task id
+     */
+    public SortedMap<Long, String> search(Long ownerId, String text) {
+        OwnerIndex index = owners.get(ownerId);
+        if (index == null) {
+            return new TreeMap<Long, String>();
+        }
+        return index.search(text.toLowerCase());
+    }
+
+    private static Set<String> grams(String lowerCaseText) {
+        Set<String> grams = new HashSet<String>();
+        for (int i = 0; i + GRAM_LENGTH <= lowerCaseText.length(); i++) {
+            grams.add(lowerCaseText.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * The titles of the tasks of one user, and their trigrams.
+     */
+    private static class OwnerIndex {
+
+        private final Map<Long, String> titles = new HashMap<Long, String>();
+
+        private final Map<Long, String> lowerCaseTitles = new HashMap<Long, String>();
+
+        private final Map<String, Set<Long>> tasksByGram = new HashMap<String, Set<Long>>();
+
+        synchronized void add(Long taskId, String title) {
+            String lowerCaseTitle = title.toLowerCase();
+            titles.put(taskId, title);
+            lowerCaseTitles.put(taskId, lowerCaseTitle);
+            for (String gram : grams(lowerCaseTitle)) {
+                Set<Long> taskIds = tasksByGram.get(gram);
+                if (taskIds == null) {
+                    taskIds = new HashSet<Long>();
+                    tasksByGram.put(gram, taskIds);
+                }
+                taskIds.add(taskId);
+            }
+        }
+
+        synchronized void remove(Long taskId) {
+            titles.remove(taskId);
+            String lowerCaseTitle = lowerCaseTitles.remove(taskId);
+            if (lowerCaseTitle == null) {
+                return;
+            }
+            for (String gram : grams(lowerCaseTitle)) {
+                Set<Long> taskIds = tasksByGram.get(gram);
+                taskIds.remove(taskId);
+                if (taskIds.isEmpty()) {
+                    tasksByGram.remove(gram);
+                }
+            }
+        }
+
+        synchronized SortedMap<Long, String> search(String lowerCaseText) {
+            Iterable<Long> candidates;
+            Set<String> grams = grams(lowerCaseText);
+            if (grams.isEmpty()) {
+                // Too short to have a trigram, any title may contain it
+                candidates = lowerCaseTitles.keySet();
+            } else {
+                List<Set<Long>> postings = new ArrayList<Set<Long>>(grams.size());
+                for (String gram : grams) {
+                    Set<Long> taskIds = tasksByGram.get(gram);
+                    if (taskIds == null) {
+                        return new TreeMap<Long, String>();
+                    }
+                    postings.add(taskIds);
+                }
+                // The titles that contain every trigram, starting from the rarest one
+                Set<Long> smallest = postings.get(0);
+                for (Set<Long> taskIds : postings) {
+                    if (taskIds.size() < smallest.size()) {
+                        smallest = taskIds;
+                    }
+                }
+                List<Long> matching = new ArrayList<Long>(smallest.size());
+                for (Long taskId : smallest) {
+                    boolean inAll = true;
+                    for (Set<Long> taskIds : postings) {
+                        if (!taskIds.contains(taskId)) {
+                            inAll = false;
+                            break;
+                        }
+                    }
+                    if (inAll) {
+                        matching.add(taskId);
+                    }
+                }
+                candidates = matching;
+            }
+
+            // Containing every trigram doesn't mean containing them in the right order
+            SortedMap<Long, String> found = new TreeMap<Long, String>();
+            for (Long taskId : candidates) {
+                if (lowerCaseTitles.get(taskId).contains(lowerCaseText)) {
+                    found.put(taskId, titles.get(taskId));
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.FileNotFoundException;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -34,6 +35,9 @@ public class TaskDaoTest {
     @Inject
     TaskDao taskDao;
 
+    @Inject
+    TaskCache taskCache;
+
     private User detachedUser;
 
     @Before
@@ -81,6 +85,19 @@ public class TaskDaoTest {
         assertTrue(tailOfTasks.get(0).getTitle().contains("second"));
     }
 
+    @Test
+    public void range_of_tasks_should_be_provided_after_last_task_of_previous_range() {
+        // when
+        List<Task> headOfTasks = taskDao.getRangeAfter(detachedUser, null, 1);
+        List<Task> tailOfTasks = taskDao.getRangeAfter(detachedUser, headOfTasks.get(0).getId(), 1);
+
+        // then
+        assertEquals(1, headOfTasks.size());
+        assertEquals(1, tailOfTasks.size());
+        assertTrue(headOfTasks.get(0).getTitle().contains("first"));
+        assertTrue(tailOfTasks.get(0).getTitle().contains("second"));
+    }
+
     @Test
     public void taskDao_should_provide_basic_case_insensitive_full_text_search() {
         // given
@@ -94,6 +111,25 @@ public class TaskDaoTest {
         assertTrue(titledTasks.get(0).getTitle().contains("first"));
     }
 
+    @Test
+    public void task_should_be_found_by_title_until_it_is_deleted() {
+        // given
+        User user = new User("Searching user");
+        em.persist(user);
+        Task task = new Task("Water the plants");
+        taskDao.createTask(user, task);
+
+        // when
+        List<Task> foundTasks = taskDao.getForTitle(user, "THE PLANT");
+        taskDao.deleteTask(task);
+        List<Task> notFoundTasks = taskDao.getForTitle(user, "THE PLANT");
+
+        // then
+        assertEquals(1, foundTasks.size());
+        assertEquals(task, foundTasks.get(0));
+        assertEquals(0, notFoundTasks.size());
+    }
+
     @Test
     public void taskDao_should_remove_task_from_detachedUser() {
         // given
@@ -108,4 +144,48 @@ public class TaskDaoTest {
         // then
         assertEquals(1, taskDao.getAll(detachedUser).size());
     }
+
+    @Test
+    public void tasks_should_be_created_and_deleted_in_bulk() {
+        // given
+        User user = new User("Bulk user");
+        em.persist(user);
+        taskDao.createTasks(user, Arrays.asList(new Task("first bulk task"), new Task("second bulk task"),
+                new Task("third bulk task")));
+        List<Task> createdTasks = taskDao.getAll(user);
+        Long firstId = taskDao.getForTitle(user, "FIRST BULK").get(0).getId();
+
+        // when
+        int deletedById = taskDao.deleteTasks(user, Arrays.asList(firstId));
+        List<Task> remainingTasks = taskDao.getAll(user);
+        int deletedForUser = taskDao.deleteAllTasks(user);
+
+        // then
+        assertEquals(3, createdTasks.size());
+        assertEquals(1, deletedById);
+        assertEquals(2, remainingTasks.size());
+        assertEquals(2, deletedForUser);
+        assertEquals(0, taskDao.getAll(user).size());
+        assertEquals(0, taskDao.getForTitle(user, "bulk").size());
+    }
+
+    @Test
+    public void task_list_should_be_cached_until_task_is_created() {
+        // given
+        User user = new User("Cached user");
+        em.persist(user);
+        taskDao.createTask(user, new Task("first cached task"));
+        taskDao.getAll(user);
+        long hits = taskCache.getHits();
+
+        // when
+        List<Task> cachedTasks = taskDao.getAll(user);
+        taskDao.createTask(user, new Task("second cached task"));
+        List<Task> reloadedTasks = taskDao.getAll(user);
+
+        // then
+        assertEquals(hits + 1, taskCache.getHits());
+        assertEquals(1, cachedTasks.size());
+        assertEquals(2, reloadedTasks.size());
+    }
 }